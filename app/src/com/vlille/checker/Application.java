@@ -2,6 +2,10 @@ package com.vlille.checker;
 
 import android.content.Context;
 import android.content.pm.PackageManager;
+import com.vlille.checker.dataset.StationRepository;
+import com.vlille.checker.history.AvailabilityHistory;
+import com.vlille.checker.history.AvailabilityPredictor;
+import com.vlille.checker.sync.StationsSyncScheduler;
 import com.vlille.checker.utils.Constants;
 import org.acra.ACRA;
 import org.acra.ReportingInteractionMode;
@@ -24,6 +28,11 @@ public class Application extends AbstractApplication {
 
         ACRA.init(this);
         context = getApplicationContext();
+
+        AvailabilityHistory.init(context);
+        AvailabilityPredictor.init(context);
+        StationRepository.loadSnapshot(context);
+        StationsSyncScheduler.schedule(context);
     }
 
     public static Context getContext() {
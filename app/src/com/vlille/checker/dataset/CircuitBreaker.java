@@ -0,0 +1,84 @@
+package com.vlille.checker.dataset;
+
+import android.util.Log;
+
+/**
+ * Stops calling a failing endpoint for a while.
+ *
+ * The circuit opens after a number of consecutive failures. While open, the requests are
+ * refused so the callers serve their last known data. Once the open delay has elapsed, a single
+ * probe request is let through: its success closes the circuit, its failure opens it again for
+ * a doubled delay.
+ */
+public class CircuitBreaker {
+
+    private static final String TAG = CircuitBreaker.class.getSimpleName();
+
+    private final String name;
+    private final int failureThreshold;
+    private final long initialOpenDelayInMillis;
+    private final long maxOpenDelayInMillis;
+
+    private int consecutiveFailures;
+    private long openDelayInMillis;
+    private long openedAt;
+    private boolean open;
+    private boolean probing;
+
+    public CircuitBreaker(String name, int failureThreshold, long openDelayInMillis, long maxOpenDelayInMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.initialOpenDelayInMillis = openDelayInMillis;
+        this.maxOpenDelayInMillis = maxOpenDelayInMillis;
+        this.openDelayInMillis = openDelayInMillis;
+    }
+
+    /**
+     * @return <code>true</code> if a request can be sent, either because the circuit is closed
+     * or because it is the probe of an open circuit.
+     */
+    public synchronized boolean allowRequest() {
+        if (!open) {
+            return true;
+        }
+        if (probing || System.currentTimeMillis() - openedAt < openDelayInMillis) {
+            return false;
+        }
+
+        Log.d(TAG, name + " circuit half open, probing");
+        probing = true;
+
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (open) {
+            Log.i(TAG, name + " circuit closed");
+        }
+
+        open = false;
+        probing = false;
+        consecutiveFailures = 0;
+        openDelayInMillis = initialOpenDelayInMillis;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+
+        if (probing) {
+            probing = false;
+            openDelayInMillis = Math.min(maxOpenDelayInMillis, openDelayInMillis * 2);
+            openedAt = System.currentTimeMillis();
+            Log.i(TAG, name + " probe failed, circuit open for " + openDelayInMillis + "ms");
+        } else if (!open && consecutiveFailures >= failureThreshold) {
+            open = true;
+            openedAt = System.currentTimeMillis();
+            Log.i(TAG, name + " circuit open for " + openDelayInMillis + "ms");
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+}
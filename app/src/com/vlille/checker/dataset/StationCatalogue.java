@@ -0,0 +1,133 @@
+package com.vlille.checker.dataset;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import com.vlille.checker.model.Station;
+import com.vlille.checker.utils.Constants;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the stations catalogue bundled as a binary asset, to have the stations without network.
+ *
+ * The asset is generated at build time by the generateStationsCatalogue gradle task.
+ * It is stored uncompressed in the APK, so it is memory-mapped; a copy in memory is read otherwise.
+ */
+public final class StationCatalogue {
+
+    private static final String TAG = StationCatalogue.class.getSimpleName();
+
+    private static final int MAGIC = 0x564C4331; // "VLC1"
+    private static final short VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 + 2 + 4 + 4;
+    private static final int RECORD_SIZE = 4 + 4 + 4 + 4 + 2;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final double VALUE_1E6 = 1e6;
+
+    private StationCatalogue() {}
+
+    /**
+     * @return the stations of the catalogue, with their name and position, or an empty list
+     * if the asset can't be read.
+     */
+    public static List<Station> load(Context context) {
+        try {
+            return read(map(context.getAssets()));
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to read the stations catalogue", e);
+
+            return Collections.emptyList();
+        }
+    }
+
+    private static ByteBuffer map(AssetManager assets) throws IOException {
+        AssetFileDescriptor descriptor;
+        try {
+            descriptor = assets.openFd(Constants.LOCAL_STATIONS_CATALOGUE_FILE_NAME);
+        } catch (IOException e) {
+            Log.w(TAG, "Compressed stations catalogue, read it in memory");
+
+            return readFully(assets);
+        }
+
+        FileInputStream inputStream = descriptor.createInputStream();
+        try {
+            FileChannel channel = inputStream.getChannel();
+
+            return channel.map(FileChannel.MapMode.READ_ONLY, descriptor.getStartOffset(), descriptor.getLength());
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static ByteBuffer readFully(AssetManager assets) throws IOException {
+        InputStream inputStream = assets.open(Constants.LOCAL_STATIONS_CATALOGUE_FILE_NAME);
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = inputStream.read(chunk)) != -1) {
+                outputStream.write(chunk, 0, read);
+            }
+
+            return ByteBuffer.wrap(outputStream.toByteArray());
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static List<Station> read(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+            throw new IOException("Invalid stations catalogue");
+        }
+
+        int count = buffer.getInt();
+        int namesSize = buffer.getInt();
+        int namesStart = HEADER_SIZE + count * RECORD_SIZE;
+        if (count < 0 || namesSize < 0 || buffer.limit() < namesStart + namesSize) {
+            throw new IOException("Truncated stations catalogue");
+        }
+
+        List<Station> stations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int record = HEADER_SIZE + i * RECORD_SIZE;
+            int nameOffset = buffer.getInt(record + 12);
+            int nameLength = buffer.getShort(record + 16) & 0xFFFF;
+            if (nameOffset < 0 || nameOffset + nameLength > namesSize) {
+                throw new IOException("Invalid station name in the catalogue");
+            }
+
+            byte[] name = new byte[nameLength];
+            buffer.position(namesStart + nameOffset);
+            buffer.get(name);
+
+            Station station = new Station();
+            station.id = buffer.getInt(record);
+            station.setName(new String(name, UTF_8));
+            station.latitudeE6 = buffer.getInt(record + 4);
+            station.longitudeE6 = buffer.getInt(record + 8);
+            station.latitude = station.latitudeE6 / VALUE_1E6;
+            station.longitude = station.longitudeE6 / VALUE_1E6;
+
+            stations.add(station);
+        }
+
+        return stations;
+    }
+
+}
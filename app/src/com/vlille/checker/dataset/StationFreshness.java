@@ -0,0 +1,87 @@
+package com.vlille.checker.dataset;
+
+import com.vlille.checker.model.Station;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records when the availability of each station was last fetched by the app,
+ * so the refresh paths can skip the stations fetched recently.
+ *
+ * Unlike {@link Station#lastUpdate}, which is the age of the data upstream, the freshness
+ * only depends on the local fetches.
+ */
+public final class StationFreshness {
+
+    /**
+     * The default delay during which a fetched station is not fetched again.
+     */
+    public static final long DEFAULT_MAX_AGE_IN_MILLIS = 30 * 1000;
+
+    private static final Map<Long, Long> FETCHED_AT = new ConcurrentHashMap<>();
+
+    private StationFreshness() {}
+
+    public static void markFetched(long stationId) {
+        markFetched(stationId, System.currentTimeMillis());
+    }
+
+    public static void markFetched(long stationId, long fetchedAt) {
+        FETCHED_AT.put(stationId, fetchedAt);
+    }
+
+    /**
+     * @return the time the station was fetched, or 0 if it has never been.
+     */
+    public static long getFetchedAt(long stationId) {
+        Long fetchedAt = FETCHED_AT.get(stationId);
+
+        return fetchedAt == null ? 0 : fetchedAt;
+    }
+
+    public static void forget(long stationId) {
+        FETCHED_AT.remove(stationId);
+    }
+
+    public static void clear() {
+        FETCHED_AT.clear();
+    }
+
+    public static boolean isFresh(long stationId) {
+        return isFresh(stationId, DEFAULT_MAX_AGE_IN_MILLIS);
+    }
+
+    public static boolean isFresh(long stationId, long maxAgeInMillis) {
+        Long fetchedAt = FETCHED_AT.get(stationId);
+
+        return fetchedAt != null && System.currentTimeMillis() - fetchedAt < maxAgeInMillis;
+    }
+
+    /**
+     * @return the seconds elapsed since the station was fetched, or 0 if it has never been.
+     */
+    public static long getAgeInSeconds(long stationId) {
+        Long fetchedAt = FETCHED_AT.get(stationId);
+        if (fetchedAt == null) {
+            return 0;
+        }
+
+        return Math.max(0, System.currentTimeMillis() - fetchedAt) / 1000;
+    }
+
+    /**
+     * Checks if every station of a list has been fetched within the default delay.
+     */
+    public static boolean areAllFresh(List<Station> stations) {
+        for (Station station : stations) {
+            if (!isFresh(station.getId())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
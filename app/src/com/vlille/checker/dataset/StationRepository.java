@@ -1,21 +1,105 @@
 package com.vlille.checker.dataset;
 
+import android.content.Context;
 import android.util.Log;
 
 import com.vlille.checker.dataset.retrofit.VlilleClient;
+import com.vlille.checker.history.AvailabilityHistory;
+import com.vlille.checker.history.AvailabilityPredictor;
 import com.vlille.checker.model.Metadata;
 import com.vlille.checker.model.SetStationsInfo;
 import com.vlille.checker.model.Station;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class StationRepository {
 
     private static final String TAG = StationRepository.class.getSimpleName();
 
-    private static final Map<Long, Station> CACHE = new ConcurrentHashMap<>();
+    /**
+     * The cached stations, an immutable snapshot replaced as a whole by each fill, so the readers
+     * never block nor see a half-updated cache. The writers are serialized on {@link #CACHE_LOCK}.
+     */
+    private static volatile Map<Long, Station> cache = Collections.emptyMap();
+
+    private static final Object CACHE_LOCK = new Object();
+
+    /**
+     * The stations kept in cache whose last fetch has failed.
+     */
+    private static final Set<Long> STALE_IDS = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+    private static final String SNAPSHOT_FILE_NAME = "stations.snapshot";
+
+    private static File snapshotFile;
+
+    /**
+     * The last published snapshot not written yet. The fills only replace it, so a burst of
+     * fills writes the latest snapshot once.
+     */
+    private static final AtomicReference<Map<Long, Station>> PENDING_SNAPSHOT = new AtomicReference<>();
+
+    private static final Executor SNAPSHOT_WRITER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "stations-snapshot");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+
+            return thread;
+        }
+    });
+
+    private static final CircuitBreaker CIRCUIT_BREAKER = new CircuitBreaker("opendata", 3, 30 * 1000, 5 * 60 * 1000);
+
+    /**
+     * Loads the last fetched stations in the cache, so the screens show the last known
+     * counts before the first fetch. Each successful fetch then updates the snapshot.
+     */
+    public static void loadSnapshot(Context context) {
+        snapshotFile = new File(context.getFilesDir(), SNAPSHOT_FILE_NAME);
+
+        List<Station> stations = StationSnapshot.load(snapshotFile);
+        publishCache(stations, Collections.<Long>emptySet());
+        Log.d(TAG, stations.size() + " stations loaded from the snapshot");
+    }
+
+    /**
+     * Writes the snapshot in background, unless a later one replaces it before the write.
+     */
+    private static void saveSnapshot(Map<Long, Station> snapshot) {
+        final File file = snapshotFile;
+        if (file == null) {
+            return;
+        }
+
+        if (PENDING_SNAPSHOT.getAndSet(snapshot) != null) {
+            // The write already scheduled picks this snapshot.
+            return;
+        }
+
+        SNAPSHOT_WRITER.execute(new Runnable() {
+            @Override
+            public void run() {
+                Map<Long, Station> latest = PENDING_SNAPSHOT.getAndSet(null);
+                if (latest != null) {
+                    StationSnapshot.save(file, latest.values());
+                }
+            }
+        });
+    }
 
     public static SetStationsInfo getSetStationsInfo() {
         try {
@@ -36,46 +120,260 @@ public class StationRepository {
     }
 
     public static List<Station> getStations() {
-        return VlilleClient.getStations();
+        if (!CIRCUIT_BREAKER.allowRequest()) {
+            Log.d(TAG, "Circuit open, skip the stations list fetch");
+
+            return Collections.emptyList();
+        }
+
+        List<Station> stations = onFetched(VlilleClient.getStations());
+        if (stations == null) {
+            return Collections.emptyList();
+        }
+
+        return stations;
     }
 
-    public static void fillStationsCache() {
-        List<Station> stations = getStations();
+    /**
+     * Fills the cache with the availability of all the remote stations.
+     * On error, the last known stations are kept in cache and flagged stale.
+     *
+     * @return <code>true</code> if the remote stations have been fetched.
+     */
+    public static boolean fillStationsCache() {
+        if (!CIRCUIT_BREAKER.allowRequest()) {
+            Log.d(TAG, "Circuit open, serve the last known stations");
+            STALE_IDS.addAll(cache.keySet());
+
+            return false;
+        }
+
+        List<Station> stations = onFetched(VlilleClient.getAvailabilities());
         if (stations == null || stations.isEmpty()) {
-            fillCacheWithNullValues();
+            STALE_IDS.addAll(cache.keySet());
 
-            return;
+            return false;
         }
 
-        fillCache(stations);
+        fillCache(stations, Collections.<Long>emptySet());
+
+        return true;
+    }
+
+    /**
+     * Fills the cache with the given stations only, fetched in a single request.
+     * The stations missing from the response are removed from the cache.
+     * On error, the last known stations are kept in cache and flagged stale.
+     *
+     * @return <code>true</code> if the stations have been fetched.
+     */
+    public static boolean fillStationsCache(List<Station> stations) {
+        return fillStationsCacheByIds(getIds(stations));
     }
 
-    private static void fillCache(List<Station> stations) {
+    /**
+     * @see #fillStationsCache(List)
+     */
+    public static boolean fillStationsCacheByIds(Set<Long> ids) {
+        return fillStationsCacheByIds(ids, false);
+    }
+
+    /**
+     * @param force <code>true</code> to skip the HTTP cache, ie on a pull to refresh.
+     * @see #fillStationsCache(List)
+     */
+    public static boolean fillStationsCacheByIds(Set<Long> ids, boolean force) {
+        Set<Long> stationIds = new HashSet<>(ids);
+        if (stationIds.isEmpty()) {
+            return true;
+        }
+
+        if (!CIRCUIT_BREAKER.allowRequest()) {
+            Log.d(TAG, "Circuit open, serve the last known stations");
+            STALE_IDS.addAll(stationIds);
+
+            return false;
+        }
+
+        List<Station> remoteStations = onFetched(VlilleClient.getStations(stationIds, force));
+        if (remoteStations == null) {
+            STALE_IDS.addAll(stationIds);
+
+            return false;
+        }
+
+        for (Station remoteStation : remoteStations) {
+            stationIds.remove(remoteStation.id);
+        }
+
+        fillCache(remoteStations, stationIds);
+        for (Long stationId : stationIds) {
+            StationFreshness.forget(stationId);
+        }
+
+        return true;
+    }
+
+    /**
+     * Reports the result of a fetch to the circuit breaker.
+     * Only an error is a failure: a targeted query can successfully match no station.
+     *
+     * @param stations the fetched stations, or null on error.
+     */
+    private static List<Station> onFetched(List<Station> stations) {
+        if (stations == null) {
+            CIRCUIT_BREAKER.onFailure();
+
+            return null;
+        }
+
+        CIRCUIT_BREAKER.onSuccess();
+
+        return stations;
+    }
+
+    /**
+     * Fills the cache with the stations which have not been fetched recently.
+     *
+     * @return <code>true</code> if the stations are fresh or have been fetched.
+     */
+    public static boolean fillStationsCacheIfStale(List<Station> stations) {
+        return fillStationsCacheIfStaleByIds(getIds(stations));
+    }
+
+    /**
+     * @see #fillStationsCacheIfStale(List)
+     */
+    public static boolean fillStationsCacheIfStaleByIds(Set<Long> ids) {
+        Set<Long> staleIds = new HashSet<>();
+        for (Long id : ids) {
+            if (!StationFreshness.isFresh(id)) {
+                staleIds.add(id);
+            }
+        }
+
+        if (staleIds.isEmpty()) {
+            Log.d(TAG, "Stations are fresh, skip the fetch");
+
+            return true;
+        }
+
+        return fillStationsCacheByIds(staleIds);
+    }
+
+    private static Set<Long> getIds(List<Station> stations) {
+        Set<Long> ids = new HashSet<>();
         for (Station station : stations) {
-            CACHE.put(station.id, station);
+            ids.add(station.id);
         }
+
+        return ids;
     }
 
-    private static void fillCacheWithNullValues() {
-        if (!CACHE.isEmpty()) {
-            CACHE.clear();
+    /**
+     * @param removedIds the stations to remove from the cache, in the same snapshot.
+     */
+    private static void fillCache(List<Station> stations, Set<Long> removedIds) {
+        Map<Long, Station> snapshot = publishCache(stations, removedIds);
+        for (Station station : stations) {
+            StationFreshness.markFetched(station.id);
+            STALE_IDS.remove(station.id);
+        }
+
+        saveSnapshot(snapshot);
+        AvailabilityHistory.record(stations);
+        AvailabilityPredictor.observe(stations);
+    }
+
+    /**
+     * Copies the cache with the given changes, then swaps the copy in.
+     *
+     * @return the published snapshot.
+     */
+    private static Map<Long, Station> publishCache(List<Station> stations, Set<Long> removedIds) {
+        synchronized (CACHE_LOCK) {
+            Map<Long, Station> snapshot = new HashMap<>(cache);
+            for (Station station : stations) {
+                snapshot.put(station.id, station);
+            }
+            snapshot.keySet().removeAll(removedIds);
+
+            cache = Collections.unmodifiableMap(snapshot);
+
+            return cache;
         }
     }
 
     public static Station getStation(Station station) {
+        if (StationFreshness.isFresh(station.id) && cache.containsKey(station.id)) {
+            return getStationFromCache(station);
+        }
+
+        if (!CIRCUIT_BREAKER.allowRequest()) {
+            STALE_IDS.add(station.id);
+
+            return getStationFromCache(station);
+        }
+
         Station remoteStation = VlilleClient.getStation(station.id);
+        if (remoteStation == null) {
+            CIRCUIT_BREAKER.onFailure();
+            STALE_IDS.add(station.id);
+
+            return getStationFromCache(station);
+        }
+
+        CIRCUIT_BREAKER.onSuccess();
+        fillCache(Collections.singletonList(remoteStation), Collections.<Long>emptySet());
 
         return updateStation(station, remoteStation);
     }
 
     public static Station getStationFromCache(Station station) {
-        Station remoteStation = CACHE.get(station.id);
+        Station remoteStation = cache.get(station.id);
 
         return updateStation(station, remoteStation);
     }
 
+    /**
+     * @return the cached stations among the given ids.
+     */
+    public static List<Station> getCachedStations(Set<Long> ids) {
+        Map<Long, Station> snapshot = cache;
+        List<Station> stations = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Station station = snapshot.get(id);
+            if (station != null) {
+                stations.add(station);
+            }
+        }
+
+        return stations;
+    }
+
+    /**
+     * Copies the cached availability to the stations found in the cache, without any fetch.
+     * The stations missing from the cache are left untouched.
+     */
+    public static void applyCachedValues(List<Station> stations) {
+        Map<Long, Station> snapshot = cache;
+        for (Station station : stations) {
+            Station cachedStation = snapshot.get(station.id);
+            if (cachedStation != null) {
+                updateStation(station, cachedStation);
+            }
+        }
+    }
+
+    /**
+     * Copies the availability of the cached station.
+     *
+     * The last update is the age of the upstream data when fetched, plus the time elapsed since
+     * the fetch, so the last known values of a stale station keep getting older.
+     */
     private static Station updateStation(Station station, Station remoteStation) {
         if (remoteStation == null) {
+            station.setStale(false);
             station.setFetchInError();
             station.setAttachs(null);
             station.setBikes(null);
@@ -84,12 +382,17 @@ public class StationRepository {
         }
 
         station.setFetchOk();
-        station.setAdress(remoteStation.adress);
+        station.setStale(STALE_IDS.contains(station.id));
+        if (remoteStation.adress != null) {
+            // The availability refreshes do not fetch the address.
+            station.setAdress(remoteStation.adress);
+        }
         station.setBikes(remoteStation.bikes);
         station.setAttachs(remoteStation.attachs);
         station.setOufOfService(remoteStation.outOfService);
         station.setCbPaiement(remoteStation.cbPaiement);
-        station.setLastUpdate(remoteStation.lastUpdate);
+        station.setLastUpdate(remoteStation.lastUpdate + StationFreshness.getAgeInSeconds(station.id));
+        station.setRecordedAt(remoteStation.getRecordedAt());
 
         return station;
     }
@@ -0,0 +1,179 @@
+package com.vlille.checker.dataset;
+
+import android.util.Log;
+
+import com.vlille.checker.model.Station;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Persists the last fetched availability of the stations in a compact binary file,
+ * read back through a memory-mapped buffer.
+ *
+ * The file is a header (magic, version, count) followed by fixed-width records:
+ * id (int), fetch time (long), upstream age in seconds (int), bikes (short),
+ * attachs (short), flags (byte).
+ */
+final class StationSnapshot {
+
+    private static final String TAG = StationSnapshot.class.getSimpleName();
+
+    private static final int MAGIC = 0x564C5331; // "VLS1"
+    private static final short VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 + 2 + 4;
+    private static final int RECORD_SIZE = 4 + 8 + 4 + 2 + 2 + 1;
+
+    private static final byte FLAG_OUT_OF_SERVICE = 1;
+    private static final byte FLAG_CB_PAYMENT = 1 << 1;
+
+    private static final short NO_VALUE = -1;
+
+    private StationSnapshot() {}
+
+    /**
+     * Writes the stations to a temporary file, then renames it, so a reader never sees
+     * a partial snapshot.
+     */
+    static synchronized void save(File file, Collection<Station> stations) {
+        List<Station> copy = new ArrayList<>(stations);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + copy.size() * RECORD_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putInt(copy.size());
+
+        for (Station station : copy) {
+            byte flags = 0;
+            if (station.isOutOfService()) {
+                flags |= FLAG_OUT_OF_SERVICE;
+            }
+            if (station.isCbPaiement()) {
+                flags |= FLAG_CB_PAYMENT;
+            }
+
+            buffer.putInt((int) station.id);
+            buffer.putLong(StationFreshness.getFetchedAt(station.id));
+            buffer.putInt((int) station.lastUpdate);
+            buffer.putShort(toShort(station.bikes));
+            buffer.putShort(toShort(station.attachs));
+            buffer.put(flags);
+        }
+        buffer.flip();
+
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(temporaryFile);
+            FileChannel channel = outputStream.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            outputStream.close();
+            outputStream = null;
+
+            if (!temporaryFile.renameTo(file)) {
+                Log.w(TAG, "Unable to rename the snapshot " + temporaryFile);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to write the snapshot " + file, e);
+        } finally {
+            closeQuietly(outputStream);
+        }
+    }
+
+    /**
+     * Reads the stations of a snapshot, with their fetch times in {@link StationFreshness}.
+     *
+     * @return the stations, or an empty list if the file is missing or invalid.
+     */
+    static List<Station> load(File file) {
+        if (!file.exists()) {
+            return Collections.emptyList();
+        }
+
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "r");
+            FileChannel channel = randomAccessFile.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                Log.w(TAG, "Invalid snapshot " + file);
+
+                return Collections.emptyList();
+            }
+
+            int count = buffer.getInt();
+            if (count < 0 || buffer.remaining() < count * RECORD_SIZE) {
+                Log.w(TAG, "Truncated snapshot " + file);
+
+                return Collections.emptyList();
+            }
+
+            List<Station> stations = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Station station = new Station();
+                station.id = buffer.getInt();
+                long fetchedAt = buffer.getLong();
+                station.lastUpdate = buffer.getInt();
+                station.bikes = toString(buffer.getShort());
+                station.attachs = toString(buffer.getShort());
+                byte flags = buffer.get();
+                station.outOfService = (flags & FLAG_OUT_OF_SERVICE) != 0;
+                station.cbPaiement = (flags & FLAG_CB_PAYMENT) != 0;
+
+                StationFreshness.markFetched(station.id, fetchedAt);
+                stations.add(station);
+            }
+
+            return stations;
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to read the snapshot " + file, e);
+
+            return Collections.emptyList();
+        } finally {
+            closeQuietly(randomAccessFile);
+        }
+    }
+
+    private static short toShort(String value) {
+        if (value == null) {
+            return NO_VALUE;
+        }
+
+        try {
+            return Short.parseShort(value);
+        } catch (NumberFormatException e) {
+            return NO_VALUE;
+        }
+    }
+
+    private static String toString(short value) {
+        return value == NO_VALUE ? null : String.valueOf(value);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to close " + closeable, e);
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.vlille.checker.dataset;
+
+import android.util.Log;
+
+import com.vlille.checker.Application;
+import com.vlille.checker.dataset.stream.AvailabilityStream;
+import com.vlille.checker.db.StationEntityManager;
+import com.vlille.checker.model.Station;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The single place where the refreshed stations are published.
+ *
+ * Each refresh result is published once by the feed: the stations whose availability changed are
+ * written in the database in one transaction, then pushed to the screens subscribed to them
+ * through the {@link AvailabilityStream}, which coalesces the updates on the main thread.
+ * The unchanged stations, same counts, flags and upstream record, are neither written nor pushed.
+ */
+public final class StationStore {
+
+    private static final String TAG = StationStore.class.getSimpleName();
+
+    private static final int UNKNOWN_COUNT = 0xFFFF;
+
+    /**
+     * The availability last published of each station.
+     */
+    private static final Map<Long, Availability> PUBLISHED = new HashMap<>();
+
+    private static StationEntityManager stationEntityManager;
+
+    private StationStore() {}
+
+    /**
+     * Publishes refreshed stations, from a background thread.
+     */
+    public static void publish(List<Station> stations) {
+        List<Station> changedStations = getChanged(stations);
+        if (changedStations.isEmpty()) {
+            Log.d(TAG, "No station changed");
+
+            return;
+        }
+
+        Log.d(TAG, changedStations.size() + " stations changed");
+        persist(changedStations);
+        AvailabilityStream.publish(changedStations);
+    }
+
+    private static synchronized List<Station> getChanged(List<Station> stations) {
+        List<Station> changedStations = new ArrayList<>();
+        for (Station station : stations) {
+            Availability availability = new Availability(pack(station), station.getRecordedAt());
+            if (!availability.equals(PUBLISHED.put(station.id, availability))) {
+                changedStations.add(station);
+            }
+        }
+
+        return changedStations;
+    }
+
+    private static void persist(List<Station> stations) {
+        StationEntityManager entityManager = getStationEntityManager();
+        if (entityManager == null) {
+            return;
+        }
+
+        try {
+            entityManager.updateAvailabilities(stations);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to write the stations availability", e);
+
+            // Written again on the next publication.
+            synchronized (StationStore.class) {
+                for (Station station : stations) {
+                    PUBLISHED.remove(station.id);
+                }
+            }
+        }
+    }
+
+    private static long pack(Station station) {
+        long bikes = station.bikes == null ? UNKNOWN_COUNT : station.getBikes() & UNKNOWN_COUNT;
+        long attachs = station.attachs == null ? UNKNOWN_COUNT : station.getAttachs() & UNKNOWN_COUNT;
+        long flags = (station.outOfService ? 1 : 0) | (station.cbPaiement ? 2 : 0);
+
+        return bikes << 32 | attachs << 16 | flags;
+    }
+
+    private static synchronized StationEntityManager getStationEntityManager() {
+        if (stationEntityManager == null && Application.getContext() != null) {
+            stationEntityManager = new StationEntityManager(Application.getContext());
+        }
+
+        return stationEntityManager;
+    }
+
+    /**
+     * The counts and flags packed in a long, and the time of the upstream record: a new record
+     * with the same counts is published too, while a refetch of the same record is not. The age
+     * displayed is computed by the screens from the fetch time.
+     */
+    private static final class Availability {
+
+        final long packed;
+        final long recordedAt;
+
+        Availability(long packed, long recordedAt) {
+            this.packed = packed;
+            this.recordedAt = recordedAt;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Availability)) {
+                return false;
+            }
+
+            Availability that = (Availability) o;
+
+            return packed == that.packed && recordedAt == that.recordedAt;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (int) (packed ^ (packed >>> 32)) + (int) (recordedAt ^ (recordedAt >>> 32));
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.vlille.checker.dataset;
+
+import com.vlille.checker.geo.NearestStationsTracker;
+import com.vlille.checker.geo.StationGridIndex;
+import com.vlille.checker.geo.TripPlanner;
+import com.vlille.checker.history.AvailabilityPredictor;
+import com.vlille.checker.model.Station;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the availability of the stations and their predicted trend to the geo queries.
+ */
+public class StationsAvailability implements NearestStationsTracker.AvailabilitySource, TripPlanner.TrendSource {
+
+    private final Map<Long, Station> stations;
+
+    public StationsAvailability(List<Station> stations) {
+        this.stations = new HashMap<>(stations.size());
+        for (Station station : stations) {
+            this.stations.put(station.id, station);
+        }
+    }
+
+    /**
+     * @return a trip planner over the stations and their last known availability.
+     */
+    public static TripPlanner newTripPlanner(List<Station> stations) {
+        StationRepository.applyCachedValues(stations);
+        StationsAvailability availability = new StationsAvailability(stations);
+
+        return new TripPlanner(new StationGridIndex(stations), availability, availability);
+    }
+
+    @Override
+    public int getBikes(long id) {
+        Station station = stations.get(id);
+        if (station == null || station.bikes == null) {
+            return UNKNOWN;
+        }
+
+        return station.isOutOfService() ? 0 : station.getBikes();
+    }
+
+    @Override
+    public int getDocks(long id) {
+        Station station = stations.get(id);
+        if (station == null || station.attachs == null) {
+            return UNKNOWN;
+        }
+
+        return station.isOutOfService() ? 0 : station.getAttachs();
+    }
+
+    @Override
+    public float getBikesPerMinute(long id) {
+        return AvailabilityPredictor.getBikesPerMinute(id);
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.vlille.checker.dataset.retrofit;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Network interceptor giving a short freshness to the responses without any cache header,
+ * so the stations fetched a few seconds ago are read from the HTTP cache.
+ *
+ * The responses stating their own freshness are left untouched.
+ */
+class CacheControlInterceptor implements Interceptor {
+
+    private static final String CACHE_CONTROL = "Cache-Control";
+    private static final String EXPIRES = "Expires";
+
+    private final int defaultMaxAgeInSeconds;
+
+    CacheControlInterceptor(int defaultMaxAgeInSeconds) {
+        this.defaultMaxAgeInSeconds = defaultMaxAgeInSeconds;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Response response = chain.proceed(chain.request());
+
+        if (!response.isSuccessful()
+                || response.header(CACHE_CONTROL) != null
+                || response.header(EXPIRES) != null) {
+            return response;
+        }
+
+        return response.newBuilder()
+                .header(CACHE_CONTROL, "public, max-age=" + defaultMaxAgeInSeconds)
+                .build();
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.vlille.checker.dataset.retrofit;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Counts the HTTP requests served by the cache and the bytes downloaded or saved.
+ *
+ * The downloaded bytes are the compressed bytes on the wire, when the server states them.
+ * The bytes saved by a cache hit are estimated from the last download of the same url.
+ */
+public final class HttpMetrics {
+
+    private static final String TAG = HttpMetrics.class.getSimpleName();
+
+    private static final AtomicLong REQUESTS = new AtomicLong();
+    private static final AtomicLong CACHE_HITS = new AtomicLong();
+    private static final AtomicLong CONDITIONAL_HITS = new AtomicLong();
+    private static final AtomicLong NETWORK_BYTES = new AtomicLong();
+    private static final AtomicLong SAVED_BYTES = new AtomicLong();
+
+    private static final Map<String, Long> LAST_NETWORK_BYTES = new ConcurrentHashMap<>();
+
+    private HttpMetrics() {}
+
+    public static long getRequests() {
+        return REQUESTS.get();
+    }
+
+    /**
+     * @return the number of responses read from the cache without any network request.
+     */
+    public static long getCacheHits() {
+        return CACHE_HITS.get();
+    }
+
+    /**
+     * @return the number of cached responses validated by the server (304).
+     */
+    public static long getConditionalHits() {
+        return CONDITIONAL_HITS.get();
+    }
+
+    public static long getNetworkBytes() {
+        return NETWORK_BYTES.get();
+    }
+
+    public static long getSavedBytes() {
+        return SAVED_BYTES.get();
+    }
+
+    /**
+     * @return the interceptor counting the requests and the cache hits, to add as an
+     * application interceptor.
+     */
+    static Interceptor applicationInterceptor() {
+        return new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                Response response = chain.proceed(chain.request());
+                onResponse(chain.request().url().toString(), response);
+
+                return response;
+            }
+        };
+    }
+
+    /**
+     * @return the interceptor counting the downloaded bytes, to add as a network interceptor.
+     */
+    static Interceptor networkInterceptor() {
+        return new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                Response response = chain.proceed(chain.request());
+
+                long contentLength = response.body() == null ? -1 : response.body().contentLength();
+                if (contentLength > 0) {
+                    NETWORK_BYTES.addAndGet(contentLength);
+                    LAST_NETWORK_BYTES.put(chain.request().url().toString(), contentLength);
+                }
+
+                return response;
+            }
+        };
+    }
+
+    private static void onResponse(String url, Response response) {
+        REQUESTS.incrementAndGet();
+
+        boolean cacheHit = response.cacheResponse() != null && response.networkResponse() == null;
+        boolean conditionalHit = response.cacheResponse() != null && response.networkResponse() != null
+                && response.networkResponse().code() == 304;
+        if (cacheHit) {
+            CACHE_HITS.incrementAndGet();
+        }
+        if (conditionalHit) {
+            CONDITIONAL_HITS.incrementAndGet();
+        }
+        if (cacheHit || conditionalHit) {
+            Long lastNetworkBytes = LAST_NETWORK_BYTES.get(url);
+            if (lastNetworkBytes != null) {
+                SAVED_BYTES.addAndGet(lastNetworkBytes);
+            }
+        }
+
+        Log.d(TAG, "requests=" + getRequests()
+                + ", cacheHits=" + getCacheHits()
+                + ", conditionalHits=" + getConditionalHits()
+                + ", networkBytes=" + getNetworkBytes()
+                + ", savedBytes=" + getSavedBytes());
+    }
+
+}
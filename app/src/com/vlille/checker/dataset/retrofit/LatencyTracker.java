@@ -0,0 +1,46 @@
+package com.vlille.checker.dataset.retrofit;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latencies of the last successful requests, to estimate their 95th percentile.
+ */
+class LatencyTracker {
+
+    private static final int MIN_SAMPLES = 10;
+
+    private final long[] samples;
+    private final long defaultLatencyInMillis;
+
+    private int count;
+    private int next;
+
+    LatencyTracker(int capacity, long defaultLatencyInMillis) {
+        this.samples = new long[capacity];
+        this.defaultLatencyInMillis = defaultLatencyInMillis;
+    }
+
+    synchronized void add(long latencyInMillis) {
+        samples[next] = latencyInMillis;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    /**
+     * @return the 95th percentile of the last latencies, or the default latency
+     * while there are too few samples.
+     */
+    synchronized long getPercentile95() {
+        if (count < MIN_SAMPLES) {
+            return defaultLatencyInMillis;
+        }
+
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+
+        return sorted[(int) Math.ceil(count * 0.95) - 1];
+    }
+
+}
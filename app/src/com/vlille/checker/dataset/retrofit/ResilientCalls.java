@@ -0,0 +1,201 @@
+package com.vlille.checker.dataset.retrofit;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Executes the API calls with bounded retries and an overall deadline.
+ *
+ * A failed attempt is retried after an exponential backoff with full jitter, as long as the
+ * deadline allows it. A hedged call can also send a second identical request when the first
+ * one is slower than the 95th percentile of the recent requests, and keeps the first response.
+ */
+final class ResilientCalls {
+
+    private static final String TAG = ResilientCalls.class.getSimpleName();
+
+    static final int MAX_ATTEMPTS = 3;
+    static final long DEADLINE_IN_MILLIS = 10 * 1000;
+    static final long BASE_BACKOFF_IN_MILLIS = 250;
+    static final long MAX_BACKOFF_IN_MILLIS = 2000;
+
+    /**
+     * Never hedge before this delay, the second request would mostly add load.
+     */
+    static final long MIN_HEDGE_DELAY_IN_MILLIS = 300;
+
+    private static final int LATENCY_SAMPLES = 50;
+    private static final long DEFAULT_LATENCY_IN_MILLIS = 1500;
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVER_ERROR = 500;
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool();
+    private static final LatencyTracker LATENCIES = new LatencyTracker(LATENCY_SAMPLES, DEFAULT_LATENCY_IN_MILLIS);
+    private static final Random RANDOM = new Random();
+
+    private ResilientCalls() {}
+
+    /**
+     * Executes a call until it succeeds, fails with a non retryable status, or runs out of
+     * attempts or time.
+     *
+     * @param call the call, cloned for each attempt.
+     * @param hedged <code>true</code> to send a second request when the first one is slow.
+     * @return the response body, or null for a non retryable error status.
+     * @throws IOException the last error when every attempt failed.
+     */
+    static <T> T execute(Call<T> call, boolean hedged) throws IOException {
+        long deadline = System.currentTimeMillis() + DEADLINE_IN_MILLIS;
+        IOException lastError = null;
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                long backoff = getBackoff(attempt);
+                if (System.currentTimeMillis() + backoff >= deadline) {
+                    break;
+                }
+                Log.d(TAG, "Retry " + attempt + " in " + backoff + "ms after " + lastError);
+                sleep(backoff);
+            }
+
+            try {
+                Response<T> response = execute(attempt == 0 ? call : call.clone(), hedged, deadline);
+                if (response.isSuccessful()) {
+                    return response.body();
+                }
+                if (!isRetryable(response.code())) {
+                    return null;
+                }
+                lastError = new IOException("HTTP " + response.code());
+            } catch (IOException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                lastError = e;
+            }
+        }
+
+        throw lastError != null ? lastError : new InterruptedIOException("Deadline exceeded");
+    }
+
+    /**
+     * @return a random delay between 0 and the exponential backoff of the attempt.
+     */
+    private static long getBackoff(int attempt) {
+        long backoff = Math.min(MAX_BACKOFF_IN_MILLIS, BASE_BACKOFF_IN_MILLIS << (attempt - 1));
+
+        synchronized (RANDOM) {
+            return (long) (RANDOM.nextDouble() * backoff);
+        }
+    }
+
+    private static boolean isRetryable(int code) {
+        return code == HTTP_TOO_MANY_REQUESTS || code >= HTTP_SERVER_ERROR;
+    }
+
+    private static <T> Response<T> execute(Call<T> call, boolean hedged, long deadline) throws IOException {
+        CompletionService<Response<T>> completionService = new ExecutorCompletionService<>(EXECUTOR);
+        List<Call<T>> calls = new ArrayList<>(2);
+
+        calls.add(call);
+        completionService.submit(timed(call));
+        int pending = 1;
+        boolean hedgeSent = !hedged;
+        IOException lastError = null;
+
+        try {
+            while (pending > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                long wait = hedgeSent ? remaining : Math.min(remaining, getHedgeDelay());
+                if (remaining <= 0) {
+                    throw new InterruptedIOException("Deadline exceeded");
+                }
+
+                Future<Response<T>> future = completionService.poll(wait, TimeUnit.MILLISECONDS);
+                if (future == null) {
+                    if (!hedgeSent) {
+                        Log.d(TAG, "Slow request, send a hedged request");
+                        Call<T> hedge = call.clone();
+                        calls.add(hedge);
+                        completionService.submit(timed(hedge));
+                        pending++;
+                        hedgeSent = true;
+                    }
+                    continue;
+                }
+
+                pending--;
+                try {
+                    return future.get();
+                } catch (ExecutionException e) {
+                    lastError = toIOException(e.getCause());
+                }
+            }
+
+            throw lastError;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("Interrupted");
+        } finally {
+            for (Call<T> each : calls) {
+                each.cancel();
+            }
+        }
+    }
+
+    private static long getHedgeDelay() {
+        return Math.max(MIN_HEDGE_DELAY_IN_MILLIS, LATENCIES.getPercentile95());
+    }
+
+    private static <T> Callable<Response<T>> timed(final Call<T> call) {
+        return new Callable<Response<T>>() {
+            @Override
+            public Response<T> call() throws IOException {
+                long start = System.currentTimeMillis();
+                Response<T> response = call.execute();
+                if (response.isSuccessful()) {
+                    LATENCIES.add(System.currentTimeMillis() - start);
+                }
+
+                return response;
+            }
+        };
+    }
+
+    private static IOException toIOException(Throwable throwable) {
+        if (throwable instanceof IOException) {
+            return (IOException) throwable;
+        }
+
+        return new IOException(throwable);
+    }
+
+    private static void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException("Interrupted");
+        }
+    }
+
+}
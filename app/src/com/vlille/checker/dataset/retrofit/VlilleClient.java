@@ -3,14 +3,20 @@ package com.vlille.checker.dataset.retrofit;
 import android.util.Log;
 
 import com.vlille.checker.BuildConfig;
+import com.vlille.checker.dataset.retrofit.model.AvailabilityResultSet;
 import com.vlille.checker.dataset.retrofit.model.ResultSet;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
+import okhttp3.CacheControl;
 import retrofit2.Call;
 
+import static com.vlille.checker.dataset.retrofit.VlilleService.Factory.FIELDS_AVAILABILITIES;
+import static com.vlille.checker.dataset.retrofit.VlilleService.Factory.FIELDS_STATIONS;
 import static com.vlille.checker.dataset.retrofit.VlilleService.Factory.VLILLE_REALTIME;
+import static com.vlille.checker.dataset.retrofit.VlilleService.Factory.VLILLE_REALTIME_ROWS;
 
 // This class should be temporary.
 // It fetches data from opendata & remap objects to the legacy ones provided by the old
@@ -19,32 +25,81 @@ public class VlilleClient {
 
     public static final String TAG = VlilleClient.class.getSimpleName();
 
+    /**
+     * Above this number of stations, downloading all the stations at once is cheaper
+     * than a long query.
+     */
+    public static final int MAX_STATIONS_BY_QUERY = 20;
+
+    private static final String QUERY_OR = " OR ";
+
+    /**
+     * Fetches all the stations.
+     *
+     * @return the stations, or null on error.
+     */
     public static List<com.vlille.checker.model.Station> getStations() {
         try {
             VlilleService service = getService();
-            Call<ResultSet> call = service.getStations(VLILLE_REALTIME, 230,
-                    BuildConfig.OPENDATA_MEL_APIKEY);
+            Call<ResultSet> call = service.getStations(VLILLE_REALTIME, VLILLE_REALTIME_ROWS,
+                    FIELDS_STATIONS, BuildConfig.OPENDATA_MEL_APIKEY);
 
-            ResultSet resultSet = call.execute().body();
+            // Not hedged: a second request would download the whole list again.
+            ResultSet resultSet = ResilientCalls.execute(call, false);
             if (resultSet == null) {
-                return Collections.emptyList();
+                return null;
             }
 
             return resultSet.toLegacyStations();
         } catch (Exception e) {
             Log.e(TAG, "Error while fetching stations list", e);
 
-            return Collections.emptyList();
+            return null;
+        }
+    }
+
+    /**
+     * Fetches the availability of all the stations, without their name, address and position.
+     *
+     * @return the stations, or null on error.
+     */
+    public static List<com.vlille.checker.model.Station> getAvailabilities() {
+        return getAvailabilities(false);
+    }
+
+    /**
+     * @param force <code>true</code> to skip the HTTP cache, ie on a pull to refresh.
+     * @see #getAvailabilities()
+     */
+    public static List<com.vlille.checker.model.Station> getAvailabilities(boolean force) {
+        try {
+            VlilleService service = getService();
+            Call<AvailabilityResultSet> call = service.getAvailabilities(VLILLE_REALTIME, VLILLE_REALTIME_ROWS,
+                    FIELDS_AVAILABILITIES, BuildConfig.OPENDATA_MEL_APIKEY, getCacheControl(force));
+
+            AvailabilityResultSet resultSet = ResilientCalls.execute(call, true);
+            if (resultSet == null) {
+                return null;
+            }
+
+            return resultSet.toLegacyStations();
+        } catch (Exception e) {
+            Log.e(TAG, "Error while fetching stations availabilities", e);
+
+            return null;
         }
     }
 
+    /**
+     * Fetches the availability of a station, without its name, address and position.
+     */
     public static com.vlille.checker.model.Station getStation(long stationId) {
         try {
             VlilleService service = getService();
-            Call<ResultSet> call = service.getStation(VLILLE_REALTIME, "libelle:" + stationId,
-                    BuildConfig.OPENDATA_MEL_APIKEY);
+            Call<AvailabilityResultSet> call = service.getAvailability(VLILLE_REALTIME, "libelle:" + stationId,
+                    FIELDS_AVAILABILITIES, BuildConfig.OPENDATA_MEL_APIKEY);
 
-            ResultSet resultSet = call.execute().body();
+            AvailabilityResultSet resultSet = ResilientCalls.execute(call, true);
             if (resultSet == null) {
                 return null;
             }
@@ -57,6 +112,71 @@ public class VlilleClient {
         }
     }
 
+    /**
+     * Fetches the availability of a set of stations in a single request, or of all the stations
+     * when the set is large.
+     *
+     * @param stationIds the stations ids.
+     * @return the fetched stations, which can contain more stations than requested, or null on
+     * error. An empty list means that none of the stations exists anymore.
+     */
+    public static List<com.vlille.checker.model.Station> getStations(Collection<Long> stationIds) {
+        return getStations(stationIds, false);
+    }
+
+    /**
+     * @param force <code>true</code> to skip the HTTP cache, ie on a pull to refresh.
+     * @see #getStations(Collection)
+     */
+    public static List<com.vlille.checker.model.Station> getStations(Collection<Long> stationIds, boolean force) {
+        if (stationIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (stationIds.size() > MAX_STATIONS_BY_QUERY) {
+            return getAvailabilities(force);
+        }
+
+        try {
+            VlilleService service = getService();
+            Call<AvailabilityResultSet> call = service.findAvailabilities(VLILLE_REALTIME, getQuery(stationIds),
+                    stationIds.size(), FIELDS_AVAILABILITIES, BuildConfig.OPENDATA_MEL_APIKEY, getCacheControl(force));
+
+            AvailabilityResultSet resultSet = ResilientCalls.execute(call, true);
+            if (resultSet == null) {
+                return null;
+            }
+
+            return resultSet.toLegacyStations();
+        } catch (Exception e) {
+            Log.e(TAG, "Error while fetching stations: " + stationIds, e);
+
+            return null;
+        }
+    }
+
+    /**
+     * @return the query matching any of the stations, ie "libelle:12 OR libelle:34".
+     */
+    private static String getQuery(Collection<Long> stationIds) {
+        StringBuilder query = new StringBuilder();
+        for (Long stationId : stationIds) {
+            if (query.length() > 0) {
+                query.append(QUERY_OR);
+            }
+            query.append("libelle:").append(stationId);
+        }
+
+        return query.toString();
+    }
+
+    /**
+     * @return the directive asking for a response from the network, or null to accept a
+     * cached one. A null header is not sent.
+     */
+    private static String getCacheControl(boolean force) {
+        return force ? CacheControl.FORCE_NETWORK.toString() : null;
+    }
+
     private static VlilleService getService() {
         return VlilleService.Factory.INSTANCE.getService();
     }
@@ -1,7 +1,12 @@
 package com.vlille.checker.dataset.retrofit;
 
+import android.content.Context;
+
+import com.vlille.checker.Application;
+import com.vlille.checker.dataset.retrofit.model.AvailabilityResultSet;
 import com.vlille.checker.dataset.retrofit.model.ResultSet;
 
+import java.io.File;
 import java.security.cert.CertificateException;
 
 import javax.net.ssl.HostnameVerifier;
@@ -11,12 +16,14 @@ import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 
+import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Call;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.Query;
 
 public interface VlilleService {
@@ -25,23 +32,69 @@ public interface VlilleService {
     Call<ResultSet> getStations(
             @Query("dataset") String dataset,
             @Query("rows") int rows,
+            @Query("fields") String fields,
             @Query("apikey") String apikey
     );
 
+    /**
+     * @param cacheControl the request cache directive, or null to let the HTTP cache answer.
+     */
+    @GET("search")
+    Call<AvailabilityResultSet> getAvailabilities(
+            @Query("dataset") String dataset,
+            @Query("rows") int rows,
+            @Query("fields") String fields,
+            @Query("apikey") String apikey,
+            @Header("Cache-Control") String cacheControl
+    );
+
     @GET("search")
-    Call<ResultSet> getStation(
+    Call<AvailabilityResultSet> getAvailability(
             @Query("dataset") String dataset,
             @Query("q") String query,
+            @Query("fields") String fields,
             @Query("apikey") String apikey
 
     );
 
+    /**
+     * @param cacheControl the request cache directive, or null to let the HTTP cache answer.
+     */
+    @GET("search")
+    Call<AvailabilityResultSet> findAvailabilities(
+            @Query("dataset") String dataset,
+            @Query("q") String query,
+            @Query("rows") int rows,
+            @Query("fields") String fields,
+            @Query("apikey") String apikey,
+            @Header("Cache-Control") String cacheControl
+    );
+
     enum Factory {
 
         INSTANCE;
 
         public static final String API_URL = "https://opendata.lillemetropole.fr/api/records/1.0/";
         public static final String VLILLE_REALTIME = "vlille-realtime";
+        public static final int VLILLE_REALTIME_ROWS = 230;
+
+        /**
+         * The fields read to update the stations list.
+         */
+        public static final String FIELDS_STATIONS = "libelle,nom,etat,nbvelosdispo,nbplacesdispo,adresse,type,geo";
+
+        /**
+         * The fields read to refresh the availability of known stations.
+         */
+        public static final String FIELDS_AVAILABILITIES = "libelle,etat,nbvelosdispo,nbplacesdispo,type";
+
+        private static final String CACHE_DIRECTORY = "http";
+        private static final long CACHE_MAX_SIZE_IN_BYTES = 2 * 1024 * 1024;
+
+        /**
+         * The freshness of the responses without any cache header.
+         */
+        private static final int DEFAULT_MAX_AGE_IN_SECONDS = 10;
 
         private VlilleService service;
 
@@ -89,6 +142,8 @@ public interface VlilleService {
                 final SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
 
                 OkHttpClient.Builder builder = new OkHttpClient.Builder();
+                // OkHttp requests and decompresses gzip responses transparently.
+                builder.cache(getCache());
                 builder.sslSocketFactory(sslSocketFactory, (X509TrustManager) trustAllCerts[0]);
                 builder.hostnameVerifier(new HostnameVerifier() {
                     @Override
@@ -100,7 +155,10 @@ public interface VlilleService {
                 HttpLoggingInterceptor interceptor = new HttpLoggingInterceptor();
                 interceptor.setLevel(HttpLoggingInterceptor.Level.BASIC);
 
+                builder.addInterceptor(HttpMetrics.applicationInterceptor());
                 builder.addInterceptor(interceptor);
+                builder.addNetworkInterceptor(HttpMetrics.networkInterceptor());
+                builder.addNetworkInterceptor(new CacheControlInterceptor(DEFAULT_MAX_AGE_IN_SECONDS));
 
                 return builder.build();
             } catch (Exception e) {
@@ -108,6 +166,18 @@ public interface VlilleService {
             }
 
         }
+
+        /**
+         * @return the on-disk HTTP cache, or null before the application is created.
+         */
+        private static Cache getCache() {
+            Context context = Application.getContext();
+            if (context == null) {
+                return null;
+            }
+
+            return new Cache(new File(context.getCacheDir(), CACHE_DIRECTORY), CACHE_MAX_SIZE_IN_BYTES);
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.vlille.checker.dataset.retrofit.model;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * The availability fields of a station, without its name, address and position.
+ */
+public class Availability {
+
+    @SerializedName("libelle")
+    public long id;
+    @SerializedName("etat")
+    public String status;
+    @SerializedName(value = "nbVelosDispo", alternate = {"nbvelosdispo"})
+    public int bikes;
+    @SerializedName(value = "nbPlacesDispo", alternate = "nbplacesdispo")
+    public int attachs;
+    @SerializedName("type")
+    public String paymentType;
+
+    public com.vlille.checker.model.Station toLegacy() {
+        com.vlille.checker.model.Station legacy = new com.vlille.checker.model.Station();
+        legacy.id = id;
+
+        legacy.attachs = String.valueOf(attachs);
+        legacy.bikes = String.valueOf(bikes);
+        legacy.outOfService = !Station.EN_SERVICE.equals(status);
+        legacy.cbPaiement = Station.AVEC_TPE.equals(paymentType);
+
+        return legacy;
+    }
+
+    @Override
+    public String toString() {
+        return "Availability{" +
+                "id=" + id +
+                ", status='" + status + '\'' +
+                ", bikes=" + bikes +
+                ", attachs=" + attachs +
+                ", paymentType='" + paymentType + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,30 @@
+package com.vlille.checker.dataset.retrofit.model;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.Date;
+
+public class AvailabilityRecord {
+    @SerializedName("fields")
+    public Availability availability;
+    @SerializedName("record_timestamp")
+    public Date lastUpdate;
+
+    public com.vlille.checker.model.Station toLegacy() {
+        com.vlille.checker.model.Station legacy = this.availability.toLegacy();
+
+        Date now = new Date();
+        legacy.lastUpdate = (now.getTime() - lastUpdate.getTime()) / 1000;
+        legacy.setRecordedAt(lastUpdate.getTime());
+
+        return legacy;
+    }
+
+    @Override
+    public String toString() {
+        return "AvailabilityRecord{" +
+                "availability=" + availability +
+                ", lastUpdate=" + lastUpdate +
+                '}';
+    }
+}
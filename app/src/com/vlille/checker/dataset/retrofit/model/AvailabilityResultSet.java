@@ -0,0 +1,38 @@
+package com.vlille.checker.dataset.retrofit.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of an availability refresh, with only the fields of {@link Availability}.
+ */
+public class AvailabilityResultSet {
+    public final List<AvailabilityRecord> records;
+
+    public AvailabilityResultSet(List<AvailabilityRecord> records) {
+        this.records = records;
+    }
+
+    public List<com.vlille.checker.model.Station> toLegacyStations() {
+        if (this.records == null || this.records.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<com.vlille.checker.model.Station> legacies = new ArrayList<>();
+
+        for (AvailabilityRecord record : records) {
+            legacies.add(record.toLegacy());
+        }
+
+        return legacies;
+    }
+
+    public com.vlille.checker.model.Station getFirstStationLegacy() {
+        if (this.records == null || this.records.isEmpty()) {
+            return null;
+        }
+
+        return this.records.get(0).toLegacy();
+    }
+}
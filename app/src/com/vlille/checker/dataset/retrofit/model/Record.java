@@ -15,6 +15,7 @@ public class Record {
 
         Date now = new Date();
         legacy.lastUpdate = (now.getTime() - lastUpdate.getTime()) / 1000;
+        legacy.setRecordedAt(lastUpdate.getTime());
 
         return legacy;
     }
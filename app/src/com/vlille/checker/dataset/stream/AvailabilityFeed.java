@@ -0,0 +1,32 @@
+package com.vlille.checker.dataset.stream;
+
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * The single producer of the {@link AvailabilityStream}: fetches the availability of the
+ * stations and publishes it through the {@link com.vlille.checker.dataset.StationStore}.
+ *
+ * A polling feed today, a server-sent events or websocket one could push the same way.
+ */
+public interface AvailabilityFeed {
+
+    /**
+     * Starts pushing the availability of the subscribed stations.
+     */
+    void start();
+
+    /**
+     * Stops pushing, when no one is subscribed anymore.
+     */
+    void stop();
+
+    /**
+     * Fetches the availability of stations now, unless they are fresh, then publishes it.
+     *
+     * @param force <code>true</code> to fetch the stations even if they are fresh.
+     * @return the future result, <code>true</code> if the stations are fresh or have been fetched.
+     */
+    Future<Boolean> request(Set<Long> stationIds, boolean force);
+
+}
@@ -0,0 +1,283 @@
+package com.vlille.checker.dataset.stream;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.vlille.checker.dataset.StationFreshness;
+import com.vlille.checker.model.Station;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * The availability of the stations, pushed by a single {@link AvailabilityFeed} to the screens
+ * subscribed to the stations they display.
+ *
+ * The screens ask for a fetch through the stream instead of the repository, so every fetch goes
+ * through the feed and is published to every subscriber. A station fetched recently, or being
+ * fetched for another screen, is not requested again.
+ *
+ * A slow subscriber never queues deliveries: while a delivery is pending, the newer values of its
+ * stations replace the older ones, so it only receives the latest value of each station.
+ */
+public final class AvailabilityStream {
+
+    private static final String TAG = AvailabilityStream.class.getSimpleName();
+
+    /**
+     * Receives the availability of the subscribed stations.
+     */
+    public interface Subscriber {
+
+        /**
+         * @param stations the last known values, not to be modified.
+         */
+        void onAvailabilities(List<Station> stations);
+    }
+
+    private static final List<Subscription> SUBSCRIPTIONS = new CopyOnWriteArrayList<>();
+
+    private static AvailabilityFeed feed = new PollingAvailabilityFeed();
+    private static boolean feedStarted;
+
+    /**
+     * The requests being fetched, by station, guarded by the class.
+     */
+    private static final Map<Long, Future<Boolean>> IN_FLIGHT = new HashMap<>();
+
+    private static Executor mainThreadExecutor;
+
+    private AvailabilityStream() {}
+
+    /**
+     * Replaces the feed, ie by a push one.
+     */
+    public static synchronized void setFeed(AvailabilityFeed newFeed) {
+        if (feedStarted) {
+            feed.stop();
+            newFeed.start();
+        }
+        feed = newFeed;
+    }
+
+    /**
+     * Subscribes to stations, with the deliveries on the main thread.
+     */
+    public static Subscription subscribe(Collection<Long> stationIds, Subscriber subscriber) {
+        return subscribe(stationIds, subscriber, getMainThreadExecutor());
+    }
+
+    public static Subscription subscribe(Collection<Long> stationIds, Subscriber subscriber, Executor executor) {
+        Subscription subscription = new Subscription(stationIds, subscriber, executor);
+        SUBSCRIPTIONS.add(subscription);
+        onSubscriptionsChanged();
+
+        return subscription;
+    }
+
+    /**
+     * Fetches stations through the feed, unless they are fresh, and waits for the result.
+     * The stations already being fetched are awaited instead of requested again.
+     * Must not be called from the main thread.
+     *
+     * @param force <code>true</code> to fetch the stations even if they are fresh.
+     * @return <code>true</code> if the stations are fresh or have been fetched.
+     */
+    public static boolean fetch(List<Station> stations, boolean force) {
+        Set<Long> requestedIds = new HashSet<>();
+        Set<Future<Boolean>> awaitedRequests = new HashSet<>();
+        Future<Boolean> request = null;
+
+        synchronized (AvailabilityStream.class) {
+            for (Station station : stations) {
+                Future<Boolean> inFlight = IN_FLIGHT.get(station.id);
+                if (inFlight != null) {
+                    awaitedRequests.add(inFlight);
+                } else if (force || !StationFreshness.isFresh(station.id)) {
+                    requestedIds.add(station.id);
+                }
+            }
+
+            if (!requestedIds.isEmpty()) {
+                request = feed.request(requestedIds, force);
+                awaitedRequests.add(request);
+                for (Long stationId : requestedIds) {
+                    IN_FLIGHT.put(stationId, request);
+                }
+            }
+        }
+
+        try {
+            boolean fetched = true;
+            for (Future<Boolean> awaitedRequest : awaitedRequests) {
+                fetched &= awaitedRequest.get();
+            }
+
+            return fetched;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return false;
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Failed to fetch the stations", e);
+
+            return false;
+        } finally {
+            if (request != null) {
+                removeInFlight(requestedIds, request);
+            }
+        }
+    }
+
+    private static synchronized void removeInFlight(Set<Long> stationIds, Future<Boolean> request) {
+        for (Long stationId : stationIds) {
+            if (IN_FLIGHT.get(stationId) == request) {
+                IN_FLIGHT.remove(stationId);
+            }
+        }
+    }
+
+    /**
+     * Publishes the availability of stations to their subscribers.
+     *
+     * @see com.vlille.checker.dataset.StationStore#publish(List)
+     */
+    public static void publish(List<Station> stations) {
+        if (stations.isEmpty()) {
+            return;
+        }
+
+        for (Subscription subscription : SUBSCRIPTIONS) {
+            subscription.offer(stations);
+        }
+    }
+
+    /**
+     * @return the stations at least one subscriber is subscribed to.
+     */
+    public static Set<Long> getSubscribedIds() {
+        Set<Long> stationIds = new HashSet<>();
+        for (Subscription subscription : SUBSCRIPTIONS) {
+            stationIds.addAll(subscription.stationIds);
+        }
+
+        return stationIds;
+    }
+
+    private static synchronized void onSubscriptionsChanged() {
+        boolean subscribed = !SUBSCRIPTIONS.isEmpty();
+        if (subscribed && !feedStarted) {
+            Log.d(TAG, "Start the feed");
+            feed.start();
+        } else if (!subscribed && feedStarted) {
+            Log.d(TAG, "Stop the feed");
+            feed.stop();
+        }
+        feedStarted = subscribed;
+    }
+
+    private static synchronized Executor getMainThreadExecutor() {
+        if (mainThreadExecutor == null) {
+            final Handler handler = new Handler(Looper.getMainLooper());
+            mainThreadExecutor = new Executor() {
+                @Override
+                public void execute(Runnable runnable) {
+                    handler.post(runnable);
+                }
+            };
+        }
+
+        return mainThreadExecutor;
+    }
+
+    /**
+     * The stations a subscriber displays, and the values waiting to be delivered.
+     */
+    public static final class Subscription {
+
+        private final Subscriber subscriber;
+        private final Executor executor;
+
+        private volatile Set<Long> stationIds;
+        private volatile boolean cancelled;
+
+        /**
+         * The latest undelivered value of each station, guarded by the subscription.
+         */
+        private final Map<Long, Station> pending = new LinkedHashMap<>();
+        private boolean deliveryScheduled;
+
+        private final Runnable delivery = new Runnable() {
+            @Override
+            public void run() {
+                List<Station> stations;
+                synchronized (Subscription.this) {
+                    stations = new ArrayList<>(pending.values());
+                    pending.clear();
+                    deliveryScheduled = false;
+                }
+
+                if (!cancelled && !stations.isEmpty()) {
+                    subscriber.onAvailabilities(stations);
+                }
+            }
+        };
+
+        private Subscription(Collection<Long> stationIds, Subscriber subscriber, Executor executor) {
+            this.stationIds = Collections.unmodifiableSet(new HashSet<>(stationIds));
+            this.subscriber = subscriber;
+            this.executor = executor;
+        }
+
+        /**
+         * Replaces the subscribed stations, ie when the visible ones change.
+         */
+        public void setStationIds(Collection<Long> stationIds) {
+            this.stationIds = Collections.unmodifiableSet(new HashSet<>(stationIds));
+        }
+
+        public void cancel() {
+            cancelled = true;
+            SUBSCRIPTIONS.remove(this);
+            onSubscriptionsChanged();
+        }
+
+        private void offer(List<Station> stations) {
+            if (cancelled) {
+                return;
+            }
+
+            Set<Long> ids = stationIds;
+            boolean schedule;
+            synchronized (this) {
+                for (Station station : stations) {
+                    if (ids.contains(station.id)) {
+                        pending.put(station.id, station);
+                    }
+                }
+
+                schedule = !deliveryScheduled && !pending.isEmpty();
+                if (schedule) {
+                    deliveryScheduled = true;
+                }
+            }
+
+            if (schedule) {
+                executor.execute(delivery);
+            }
+        }
+    }
+
+}
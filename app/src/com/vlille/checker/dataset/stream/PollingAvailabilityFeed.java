@@ -0,0 +1,110 @@
+package com.vlille.checker.dataset.stream;
+
+import android.util.Log;
+
+import com.vlille.checker.Application;
+import com.vlille.checker.dataset.StationFreshness;
+import com.vlille.checker.dataset.StationRepository;
+import com.vlille.checker.dataset.StationStore;
+import com.vlille.checker.utils.ContextHelper;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds the stream by polling the subscribed stations periodically.
+ *
+ * The polls and the requests all run on a single thread, so two screens asking for the same
+ * stations never fetch them twice: the second request finds them fresh.
+ */
+public class PollingAvailabilityFeed implements AvailabilityFeed {
+
+    private static final String TAG = PollingAvailabilityFeed.class.getSimpleName();
+
+    public static final long DEFAULT_INTERVAL_IN_MILLIS = StationFreshness.DEFAULT_MAX_AGE_IN_MILLIS;
+
+    private final long intervalInMillis;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "availability-feed");
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    });
+
+    private final Runnable poll = new Runnable() {
+        @Override
+        public void run() {
+            Set<Long> stationIds = AvailabilityStream.getSubscribedIds();
+            if (stationIds.isEmpty() || !ContextHelper.isNetworkAvailable(Application.getContext())) {
+                return;
+            }
+
+            try {
+                Log.d(TAG, "Poll " + stationIds.size() + " stations");
+                fetchAndPublish(stationIds, false);
+            } catch (RuntimeException e) {
+                // An exception would cancel the next polls.
+                Log.e(TAG, "Failed to poll the stations", e);
+            }
+        }
+    };
+
+    private ScheduledFuture<?> polling;
+
+    public PollingAvailabilityFeed() {
+        this(DEFAULT_INTERVAL_IN_MILLIS);
+    }
+
+    public PollingAvailabilityFeed(long intervalInMillis) {
+        this.intervalInMillis = intervalInMillis;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (polling == null) {
+            polling = executor.scheduleWithFixedDelay(poll, intervalInMillis, intervalInMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (polling != null) {
+            polling.cancel(false);
+            polling = null;
+        }
+    }
+
+    @Override
+    public Future<Boolean> request(final Set<Long> stationIds, final boolean force) {
+        return executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return fetchAndPublish(stationIds, force);
+            }
+        });
+    }
+
+    private static boolean fetchAndPublish(Set<Long> stationIds, boolean force) {
+        if (stationIds.isEmpty()) {
+            return true;
+        }
+
+        boolean fetched = force
+                ? StationRepository.fillStationsCacheByIds(stationIds, true)
+                : StationRepository.fillStationsCacheIfStaleByIds(stationIds);
+        StationStore.publish(StationRepository.getCachedStations(stationIds));
+
+        return fetched;
+    }
+
+}
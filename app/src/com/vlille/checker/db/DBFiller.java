@@ -1,12 +1,20 @@
 package com.vlille.checker.db;
 
+import android.os.AsyncTask;
 import android.util.Log;
 
 import com.vlille.checker.R;
+import com.vlille.checker.dataset.StationCatalogue;
+import com.vlille.checker.model.Station;
 import com.vlille.checker.model.SetStationsInfo;
 import com.vlille.checker.ui.HomeActivity;
 import com.vlille.checker.ui.async.SetStationsInfoAsyncTask;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 public class DBFiller extends DBAction implements SetStationsInfoAsyncTask.SetStationsDelegate {
 
     private static final String TAG = DBFiller.class.getSimpleName();
@@ -25,7 +33,7 @@ public class DBFiller extends DBAction implements SetStationsInfoAsyncTask.SetSt
 
     public void fillIfDbIsEmpty() {
         if (isDBEmpty()) {
-            fill();
+            new CatalogueAsyncTask().execute();
         }
     }
 
@@ -33,6 +41,32 @@ public class DBFiller extends DBAction implements SetStationsInfoAsyncTask.SetSt
         return getStationEntityManager().count() == 0;
     }
 
+    /**
+     * @return <code>true</code> if the stations have never been fetched, the db being empty
+     * or only filled from the bundled catalogue.
+     */
+    public boolean isNeverFilled() {
+        return getMetadataEntityManager().find() == null;
+    }
+
+    /**
+     * Fills the db with the bundled catalogue, so the stations are shown without network.
+     * The remote fill then completes them.
+     *
+     * Must not be called from the main thread.
+     */
+    private void fillFromCatalogue() {
+        long start = System.currentTimeMillis();
+
+        List<Station> stations = StationCatalogue.load(getContext());
+        if (!stations.isEmpty()) {
+            getStationEntityManager().create(stations);
+        }
+
+        long duration = System.currentTimeMillis() - start;
+        Log.d(TAG, "Time to fill " + stations.size() + " stations from the catalogue: " + duration + " ms");
+    }
+
     public void fill() {
         new SetStationsInfoAsyncTask(this).execute();
     }
@@ -54,12 +88,14 @@ public class DBFiller extends DBAction implements SetStationsInfoAsyncTask.SetSt
     }
 
     private void onResultError() {
-        homeActivity.showInitDbErrorMessage();
+        if (isDBEmpty()) {
+            homeActivity.showInitDbErrorMessage();
+        }
     }
 
     private void onResultSuccess(SetStationsInfo setStationsInfo) {
         getMetadataEntityManager().create(setStationsInfo.getMetadata());
-        getStationEntityManager().create(setStationsInfo.getStations());
+        saveStations(setStationsInfo.getStations());
 
         homeActivity.showSnackBarMessage(R.string.installation_done);
 
@@ -68,4 +104,51 @@ public class DBFiller extends DBAction implements SetStationsInfoAsyncTask.SetSt
         }
     }
 
+    /**
+     * Creates the new remote stations, and only updates the description of the stations already
+     * in db, ie from the catalogue, so their starred flag, ordinal and widget id are kept.
+     */
+    private void saveStations(List<Station> remoteStations) {
+        Set<Long> inDBIds = new HashSet<>();
+        for (Station station : getInDBStations()) {
+            inDBIds.add(station.id);
+        }
+
+        List<Station> toCreateStations = new ArrayList<>();
+        List<Station> toUpdateStations = new ArrayList<>();
+        for (Station station : remoteStations) {
+            if (inDBIds.contains(station.id)) {
+                toUpdateStations.add(station);
+            } else {
+                toCreateStations.add(station);
+            }
+        }
+
+        Log.d(TAG, toCreateStations.size() + " stations to create, " + toUpdateStations.size() + " to update");
+        if (!toCreateStations.isEmpty()) {
+            getStationEntityManager().create(toCreateStations);
+        }
+        getStationEntityManager().updateDescriptions(toUpdateStations);
+    }
+
+    /**
+     * Fills the db from the catalogue off the main thread, shows the stations, then starts the
+     * remote fill.
+     */
+    private class CatalogueAsyncTask extends AsyncTask<Void, Void, Void> {
+
+        @Override
+        protected Void doInBackground(Void... params) {
+            fillFromCatalogue();
+
+            return null;
+        }
+
+        @Override
+        protected void onPostExecute(Void result) {
+            homeActivity.resumeVisibleFragment();
+            fill();
+        }
+    }
+
 }
\ No newline at end of file
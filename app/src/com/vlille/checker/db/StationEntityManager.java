@@ -3,6 +3,7 @@ package com.vlille.checker.db;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 import com.vlille.checker.model.MapStationWidget;
 import com.vlille.checker.model.Station;
@@ -69,4 +70,61 @@ public class StationEntityManager extends EntityManager<Station> {
         return false;
     }
 
+    /**
+     * Writes the name, address and coordinates columns only, in a single transaction, so the
+     * starred flag, the ordinal and the widget id of the stations are kept.
+     */
+    public void updateDescriptions(List<Station> stations) {
+        SQLiteDatabase db = getDB();
+        String[] whereArgs = new String[1];
+
+        db.beginTransaction();
+        try {
+            for (Station station : stations) {
+                ContentValues cv = new ContentValues();
+                cv.put(Station.NAME, station.name);
+                if (station.adress != null) {
+                    cv.put(Station.ADDRESS, station.adress);
+                }
+                cv.put(Station.LATITUDE, station.latitude);
+                cv.put(Station.LATITUDE_E6, station.latitudeE6);
+                cv.put(Station.LONGITUDE, station.longitude);
+                cv.put(Station.LONGITUDE_E6, station.longitudeE6);
+                whereArgs[0] = String.valueOf(station.id);
+
+                db.update(getTableName(), cv, Station.ID + " = ?", whereArgs);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Writes the availability columns only, in a single transaction, so a refresh never
+     * overwrites the starred flag or the widget id.
+     */
+    public void updateAvailabilities(List<Station> stations) {
+        SQLiteDatabase db = getDB();
+        ContentValues cv = new ContentValues();
+        String[] whereArgs = new String[1];
+
+        db.beginTransaction();
+        try {
+            for (Station station : stations) {
+                cv.put(Station.BIKES, station.bikes);
+                cv.put(Station.ATTACHS, station.attachs);
+                cv.put(Station.OUT_OF_SERVICE, station.outOfService);
+                cv.put(Station.CC_PAYMENT, station.cbPaiement);
+                cv.put(Station.LAST_UPDATE, station.lastUpdate);
+                whereArgs[0] = String.valueOf(station.id);
+
+                db.update(getTableName(), cv, Station.ID + " = ?", whereArgs);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
 }
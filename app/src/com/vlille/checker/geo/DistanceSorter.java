@@ -0,0 +1,76 @@
+package com.vlille.checker.geo;
+
+import java.util.List;
+
+/**
+ * Keeps a list sorted by the distance from a moving position.
+ *
+ * Between two close positions the order barely changes, so the list is sorted again in place
+ * with an insertion sort, linear on nearly sorted data, instead of a full sort on each position.
+ */
+public class DistanceSorter<T extends Located> {
+
+    private final List<T> items;
+
+    /**
+     * The distance of each item, in the same order as the items.
+     */
+    private final double[] distances;
+
+    private boolean sorted;
+
+    /**
+     * @param items the list to sort in place.
+     */
+    public DistanceSorter(List<T> items) {
+        this.items = items;
+        this.distances = new double[items.size()];
+    }
+
+    /**
+     * Sorts the items by their distance from a position, the nearest first.
+     *
+     * @return true if the order of the items changed.
+     */
+    public boolean sort(double latitude, double longitude) {
+        int size = items.size();
+        for (int i = 0; i < size; i++) {
+            T item = items.get(i);
+            distances[i] = GeoMath.haversine(latitude, longitude, item.getLatitude(), item.getLongitude());
+        }
+
+        boolean changed = false;
+        for (int i = 1; i < size; i++) {
+            double distance = distances[i];
+            if (distances[i - 1] <= distance) {
+                continue;
+            }
+
+            T item = items.get(i);
+            int j = i;
+            while (j > 0 && distances[j - 1] > distance) {
+                distances[j] = distances[j - 1];
+                items.set(j, items.get(j - 1));
+                j--;
+            }
+            distances[j] = distance;
+            items.set(j, item);
+            changed = true;
+        }
+        sorted = true;
+
+        return changed;
+    }
+
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * @return the distance of the item at a position, in meters.
+     */
+    public double getDistance(int position) {
+        return distances[position];
+    }
+
+}
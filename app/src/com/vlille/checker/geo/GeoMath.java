@@ -0,0 +1,47 @@
+package com.vlille.checker.geo;
+
+/**
+ * Distances between coordinates, in meters.
+ */
+public final class GeoMath {
+
+    public static final double EARTH_RADIUS_IN_METERS = 6371008.8;
+
+    /**
+     * The meters of one degree of latitude.
+     */
+    public static final double METERS_BY_DEGREE = EARTH_RADIUS_IN_METERS * Math.PI / 180;
+
+    private GeoMath() {}
+
+    /**
+     * The great-circle distance, exact on a sphere.
+     */
+    public static double haversine(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double deltaLatitude = Math.toRadians(latitude2 - latitude1);
+        double deltaLongitude = Math.toRadians(longitude2 - longitude1);
+
+        double sinLatitude = Math.sin(deltaLatitude / 2);
+        double sinLongitude = Math.sin(deltaLongitude / 2);
+        double a = sinLatitude * sinLatitude
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * sinLongitude * sinLongitude;
+
+        return 2 * EARTH_RADIUS_IN_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * The equirectangular approximation, without any trigonometry but the given cosine.
+     * Its error is far below a meter at the scale of a city.
+     *
+     * @param cosLatitude the cosine of the latitude around which the distance is measured.
+     */
+    public static double equirectangular(double latitude1, double longitude1,
+                                         double latitude2, double longitude2,
+                                         double cosLatitude) {
+        double x = (longitude2 - longitude1) * cosLatitude;
+        double y = latitude2 - latitude1;
+
+        return Math.sqrt(x * x + y * y) * METERS_BY_DEGREE;
+    }
+
+}
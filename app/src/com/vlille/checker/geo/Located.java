@@ -0,0 +1,14 @@
+package com.vlille.checker.geo;
+
+/**
+ * Something indexable by its position.
+ */
+public interface Located {
+
+    long getId();
+
+    double getLatitude();
+
+    double getLongitude();
+
+}
@@ -0,0 +1,157 @@
+package com.vlille.checker.geo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the k nearest stations having at least N bikes or N docks up to date,
+ * while the location and the availability change.
+ *
+ * A new location is only queried after a meaningful movement, and an availability change
+ * only when the station is part of the result or could now enter it.
+ */
+public class NearestStationsTracker {
+
+    /**
+     * The availability of the indexed stations, by id.
+     */
+    public interface AvailabilitySource {
+
+        int UNKNOWN = -1;
+
+        /**
+         * @return the bikes, or {@link #UNKNOWN}.
+         */
+        int getBikes(long id);
+
+        /**
+         * @return the docks, or {@link #UNKNOWN}.
+         */
+        int getDocks(long id);
+    }
+
+    public enum Criteria {
+        BIKES,
+        DOCKS
+    }
+
+    public static final double DEFAULT_MIN_MOVEMENT_IN_METERS = 25;
+
+    private final StationGridIndex index;
+    private final AvailabilitySource availabilitySource;
+    private final Criteria criteria;
+    private final int minimum;
+    private final int k;
+    private final double maxDistanceInMeters;
+    private final double minMovementInMeters;
+
+    private final StationGridIndex.Filter filter = new StationGridIndex.Filter() {
+        @Override
+        public boolean accept(long id, int index) {
+            return isAvailable(id);
+        }
+    };
+
+    private boolean located;
+    private double latitude;
+    private double longitude;
+    private List<Neighbor> nearest = new ArrayList<>(0);
+
+    /**
+     * @param criteria the bikes to pick up, or the docks to drop off.
+     * @param minimum the minimum bikes or docks, N.
+     * @param k the maximum stations.
+     * @param maxDistanceInMeters the search radius, or {@link Double#MAX_VALUE}.
+     */
+    public NearestStationsTracker(StationGridIndex index, AvailabilitySource availabilitySource,
+                                  Criteria criteria, int minimum, int k,
+                                  double maxDistanceInMeters) {
+        this(index, availabilitySource, criteria, minimum, k, maxDistanceInMeters, DEFAULT_MIN_MOVEMENT_IN_METERS);
+    }
+
+    public NearestStationsTracker(StationGridIndex index, AvailabilitySource availabilitySource,
+                                  Criteria criteria, int minimum, int k,
+                                  double maxDistanceInMeters, double minMovementInMeters) {
+        this.index = index;
+        this.availabilitySource = availabilitySource;
+        this.criteria = criteria;
+        this.minimum = minimum;
+        this.k = k;
+        this.maxDistanceInMeters = maxDistanceInMeters;
+        this.minMovementInMeters = minMovementInMeters;
+    }
+
+    /**
+     * @return true if the nearest stations were computed again.
+     */
+    public boolean onLocationChanged(double latitude, double longitude) {
+        if (located
+                && GeoMath.haversine(this.latitude, this.longitude, latitude, longitude) < minMovementInMeters) {
+            return false;
+        }
+
+        this.located = true;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        compute();
+
+        return true;
+    }
+
+    /**
+     * @param stationIndex the position of the station in the indexed list.
+     * @return true if the nearest stations were computed again.
+     */
+    public boolean onAvailabilityChanged(long id, int stationIndex) {
+        if (!located || !isAffectedBy(id, stationIndex)) {
+            return false;
+        }
+
+        compute();
+
+        return true;
+    }
+
+    /**
+     * Computes the nearest stations again after a whole availability snapshot.
+     */
+    public void onAvailabilitiesChanged() {
+        if (located) {
+            compute();
+        }
+    }
+
+    /**
+     * @return the nearest available stations, the nearest first.
+     */
+    public List<Neighbor> getNearest() {
+        return nearest;
+    }
+
+    private boolean isAffectedBy(long id, int stationIndex) {
+        for (Neighbor neighbor : nearest) {
+            if (neighbor.getId() == id) {
+                return true;
+            }
+        }
+
+        if (!isAvailable(id)) {
+            return false;
+        }
+
+        double bound = nearest.size() < k ? maxDistanceInMeters : nearest.get(k - 1).getDistanceInMeters();
+
+        return index.distanceTo(stationIndex, latitude, longitude) <= bound;
+    }
+
+    private void compute() {
+        nearest = index.nearest(latitude, longitude, k, maxDistanceInMeters, filter);
+    }
+
+    private boolean isAvailable(long id) {
+        int value = criteria == Criteria.BIKES ? availabilitySource.getBikes(id) : availabilitySource.getDocks(id);
+
+        return value != AvailabilitySource.UNKNOWN && value >= minimum;
+    }
+
+}
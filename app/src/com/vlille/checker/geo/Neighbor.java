@@ -0,0 +1,40 @@
+package com.vlille.checker.geo;
+
+/**
+ * An indexed item found by a query, with its distance.
+ */
+public class Neighbor {
+
+    private final long id;
+    private final int index;
+    private final double distanceInMeters;
+
+    Neighbor(long id, int index, double distanceInMeters) {
+        this.id = id;
+        this.index = index;
+        this.distanceInMeters = distanceInMeters;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return the position of the item in the list the index was built from.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public double getDistanceInMeters() {
+        return distanceInMeters;
+    }
+
+    @Override
+    public String toString() {
+        return "Neighbor{" +
+                "id=" + id +
+                ", distanceInMeters=" + distanceInMeters +
+                '}';
+    }
+}
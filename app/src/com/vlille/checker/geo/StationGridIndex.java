@@ -0,0 +1,227 @@
+package com.vlille.checker.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A spatial index over fixed positions, bucketed in a uniform grid of square cells.
+ *
+ * The queries scan the cells in rings around the searched position, pre-filter the candidates
+ * with the equirectangular distance and only compute the haversine distance of the kept ones.
+ * The grid is immutable, the availability is checked at query time through a {@link Filter}.
+ */
+public class StationGridIndex {
+
+    /**
+     * Accepts the items matching a criteria, ie their availability.
+     */
+    public interface Filter {
+
+        Filter ALL = new Filter() {
+            @Override
+            public boolean accept(long id, int index) {
+                return true;
+            }
+        };
+
+        boolean accept(long id, int index);
+    }
+
+    public static final double DEFAULT_CELL_SIZE_IN_METERS = 250;
+
+    /**
+     * Tolerance of the equirectangular pre-filter, so it never rejects an item kept by haversine.
+     */
+    private static final double PRE_FILTER_TOLERANCE = 1.01;
+
+    private final long[] ids;
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    private final double cellSizeInMeters;
+    private final double cellLatitudeDegrees;
+    private final double cellLongitudeDegrees;
+    private final double cosLatitude;
+    private final double minLatitude;
+    private final double minLongitude;
+    private final int rows;
+    private final int columns;
+
+    /**
+     * The items of the cell c are cellItems[cellStarts[c]] to cellItems[cellStarts[c + 1] - 1].
+     */
+    private final int[] cellStarts;
+    private final int[] cellItems;
+
+    public StationGridIndex(List<? extends Located> items) {
+        this(items, DEFAULT_CELL_SIZE_IN_METERS);
+    }
+
+    public StationGridIndex(List<? extends Located> items, double cellSizeInMeters) {
+        int size = items.size();
+        this.ids = new long[size];
+        this.latitudes = new double[size];
+        this.longitudes = new double[size];
+
+        double minLat = Double.MAX_VALUE;
+        double maxLat = -Double.MAX_VALUE;
+        double minLng = Double.MAX_VALUE;
+        double maxLng = -Double.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            Located item = items.get(i);
+            ids[i] = item.getId();
+            latitudes[i] = item.getLatitude();
+            longitudes[i] = item.getLongitude();
+
+            minLat = Math.min(minLat, latitudes[i]);
+            maxLat = Math.max(maxLat, latitudes[i]);
+            minLng = Math.min(minLng, longitudes[i]);
+            maxLng = Math.max(maxLng, longitudes[i]);
+        }
+        if (size == 0) {
+            minLat = maxLat = minLng = maxLng = 0;
+        }
+
+        this.cellSizeInMeters = cellSizeInMeters;
+        this.cosLatitude = Math.cos(Math.toRadians((minLat + maxLat) / 2));
+        this.cellLatitudeDegrees = cellSizeInMeters / GeoMath.METERS_BY_DEGREE;
+        this.cellLongitudeDegrees = cellLatitudeDegrees / cosLatitude;
+        this.minLatitude = minLat;
+        this.minLongitude = minLng;
+        this.rows = (int) ((maxLat - minLat) / cellLatitudeDegrees) + 1;
+        this.columns = (int) ((maxLng - minLng) / cellLongitudeDegrees) + 1;
+
+        // Counting sort of the items by cell.
+        int[] cells = new int[size];
+        this.cellStarts = new int[rows * columns + 1];
+        for (int i = 0; i < size; i++) {
+            cells[i] = getRow(latitudes[i]) * columns + getColumn(longitudes[i]);
+            cellStarts[cells[i] + 1]++;
+        }
+        for (int c = 0; c < rows * columns; c++) {
+            cellStarts[c + 1] += cellStarts[c];
+        }
+        this.cellItems = new int[size];
+        int[] next = Arrays.copyOf(cellStarts, cellStarts.length);
+        for (int i = 0; i < size; i++) {
+            cellItems[next[cells[i]]++] = i;
+        }
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Finds the k nearest items accepted by the filter.
+     *
+     * @param maxDistanceInMeters the maximum distance, or {@link Double#MAX_VALUE}.
+     * @return the nearest items, the nearest first.
+     */
+    public List<Neighbor> nearest(double latitude, double longitude, int k,
+                                  double maxDistanceInMeters, Filter filter) {
+        if (k <= 0 || ids.length == 0) {
+            return new ArrayList<>(0);
+        }
+
+        int[] bestIndexes = new int[k];
+        double[] bestDistances = new double[k];
+        int found = 0;
+
+        int row = getRow(latitude);
+        int column = getColumn(longitude);
+        int maxRing = Math.max(Math.max(row, rows - 1 - row), Math.max(column, columns - 1 - column));
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // The items of this ring are at least (ring - 1) cells away.
+            double ringDistance = (ring - 1) * cellSizeInMeters;
+            if (ringDistance > maxDistanceInMeters || (found == k && ringDistance > bestDistances[k - 1])) {
+                break;
+            }
+
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                boolean edgeRow = r == row - ring || r == row + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int c = column - ring; c <= column + ring; c += Math.max(step, 1)) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+
+                    int cell = r * columns + c;
+                    for (int j = cellStarts[cell]; j < cellStarts[cell + 1]; j++) {
+                        int index = cellItems[j];
+
+                        double bound = found == k ? Math.min(maxDistanceInMeters, bestDistances[k - 1]) : maxDistanceInMeters;
+                        double approximation = GeoMath.equirectangular(latitude, longitude,
+                                latitudes[index], longitudes[index], cosLatitude);
+                        if (approximation > bound * PRE_FILTER_TOLERANCE || !filter.accept(ids[index], index)) {
+                            continue;
+                        }
+
+                        double distance = GeoMath.haversine(latitude, longitude, latitudes[index], longitudes[index]);
+                        if (distance > bound) {
+                            continue;
+                        }
+
+                        // Insertion in the sorted best items.
+                        int position = found < k ? found++ : k - 1;
+                        while (position > 0 && bestDistances[position - 1] > distance) {
+                            bestDistances[position] = bestDistances[position - 1];
+                            bestIndexes[position] = bestIndexes[position - 1];
+                            position--;
+                        }
+                        bestDistances[position] = distance;
+                        bestIndexes[position] = index;
+                    }
+                }
+            }
+        }
+
+        List<Neighbor> neighbors = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            neighbors.add(new Neighbor(ids[bestIndexes[i]], bestIndexes[i], bestDistances[i]));
+        }
+
+        return neighbors;
+    }
+
+    /**
+     * Finds all the items accepted by the filter within a radius.
+     *
+     * @return the items, the nearest first.
+     */
+    public List<Neighbor> withinRadius(double latitude, double longitude, double radiusInMeters, Filter filter) {
+        return nearest(latitude, longitude, ids.length, radiusInMeters, filter);
+    }
+
+    /**
+     * @return the distance from a position to an item, in meters.
+     */
+    public double distanceTo(int index, double latitude, double longitude) {
+        return GeoMath.haversine(latitude, longitude, latitudes[index], longitudes[index]);
+    }
+
+    /**
+     * @return the distance between two items, in meters.
+     */
+    public double distanceBetween(int index1, int index2) {
+        return GeoMath.haversine(latitudes[index1], longitudes[index1], latitudes[index2], longitudes[index2]);
+    }
+
+    private int getRow(double latitude) {
+        return clamp((int) Math.floor((latitude - minLatitude) / cellLatitudeDegrees), rows);
+    }
+
+    private int getColumn(double longitude) {
+        return clamp((int) Math.floor((longitude - minLongitude) / cellLongitudeDegrees), columns);
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+}
@@ -0,0 +1,172 @@
+package com.vlille.checker.geo;
+
+import java.util.List;
+
+/**
+ * Suggests the stations of a trip between two points: where to pick up a bike near the origin
+ * and where to drop it off near the destination.
+ *
+ * Each candidate is scored in a single pass over the stations within walking distance, by the
+ * expected duration of the whole trip plus a penalty when the station may be empty (or full)
+ * when reached, given its current availability and its short-term trend.
+ */
+public class TripPlanner {
+
+    /**
+     * The short-term trend of the stations availability.
+     */
+    public interface TrendSource {
+
+        /**
+         * @return the bikes gained (or lost when negative) per minute, 0 if unknown.
+         */
+        float getBikesPerMinute(long id);
+    }
+
+    /**
+     * The suggested stations, each with its walking distance.
+     */
+    public static class Trip {
+
+        private final Neighbor pickup;
+        private final Neighbor dropOff;
+        private final double durationInSeconds;
+
+        Trip(Neighbor pickup, Neighbor dropOff, double durationInSeconds) {
+            this.pickup = pickup;
+            this.dropOff = dropOff;
+            this.durationInSeconds = durationInSeconds;
+        }
+
+        /**
+         * @return the station near the origin, or null if none has bikes within walking distance.
+         */
+        public Neighbor getPickup() {
+            return pickup;
+        }
+
+        /**
+         * @return the station near the destination, or null if none has docks within walking distance.
+         */
+        public Neighbor getDropOff() {
+            return dropOff;
+        }
+
+        public boolean isFound() {
+            return pickup != null && dropOff != null;
+        }
+
+        /**
+         * @return the expected duration of the trip, walks included.
+         */
+        public double getDurationInSeconds() {
+            return durationInSeconds;
+        }
+    }
+
+    public static final double DEFAULT_MAX_WALK_IN_METERS = 800;
+
+    private static final double WALK_SPEED_IN_METERS_BY_SECOND = 1.3;
+    private static final double RIDE_SPEED_IN_METERS_BY_SECOND = 4.2;
+
+    /**
+     * The bikes or docks expected under which a station is penalized.
+     */
+    private static final float COMFORT_MARGIN = 2;
+
+    /**
+     * The penalty of each bike or dock missing to the comfort margin.
+     */
+    private static final double PENALTY_IN_SECONDS = 120;
+
+    private final StationGridIndex index;
+    private final NearestStationsTracker.AvailabilitySource availabilitySource;
+    private final TrendSource trendSource;
+    private final double maxWalkInMeters;
+
+    public TripPlanner(StationGridIndex index,
+                       NearestStationsTracker.AvailabilitySource availabilitySource,
+                       TrendSource trendSource) {
+        this(index, availabilitySource, trendSource, DEFAULT_MAX_WALK_IN_METERS);
+    }
+
+    public TripPlanner(StationGridIndex index,
+                       NearestStationsTracker.AvailabilitySource availabilitySource,
+                       TrendSource trendSource,
+                       double maxWalkInMeters) {
+        this.index = index;
+        this.availabilitySource = availabilitySource;
+        this.trendSource = trendSource;
+        this.maxWalkInMeters = maxWalkInMeters;
+    }
+
+    public Trip plan(double originLatitude, double originLongitude,
+                     double destinationLatitude, double destinationLongitude) {
+        Neighbor pickup = null;
+        double pickupScore = Double.MAX_VALUE;
+
+        List<Neighbor> origins = index.withinRadius(originLatitude, originLongitude, maxWalkInMeters,
+                StationGridIndex.Filter.ALL);
+        for (Neighbor candidate : origins) {
+            int bikes = availabilitySource.getBikes(candidate.getId());
+            if (bikes == NearestStationsTracker.AvailabilitySource.UNKNOWN || bikes == 0) {
+                continue;
+            }
+
+            double walk = candidate.getDistanceInMeters() / WALK_SPEED_IN_METERS_BY_SECOND;
+            double ride = index.distanceTo(candidate.getIndex(), destinationLatitude, destinationLongitude)
+                    / RIDE_SPEED_IN_METERS_BY_SECOND;
+            float expectedBikes = bikes + trendSource.getBikesPerMinute(candidate.getId()) * (float) (walk / 60);
+
+            double score = walk + ride + getPenalty(expectedBikes);
+            if (score < pickupScore) {
+                pickup = candidate;
+                pickupScore = score;
+            }
+        }
+
+        Neighbor dropOff = null;
+        double dropOffScore = Double.MAX_VALUE;
+
+        List<Neighbor> destinations = index.withinRadius(destinationLatitude, destinationLongitude, maxWalkInMeters,
+                StationGridIndex.Filter.ALL);
+        for (Neighbor candidate : destinations) {
+            int docks = availabilitySource.getDocks(candidate.getId());
+            if (docks == NearestStationsTracker.AvailabilitySource.UNKNOWN || docks == 0) {
+                continue;
+            }
+
+            double walk = candidate.getDistanceInMeters() / WALK_SPEED_IN_METERS_BY_SECOND;
+            double ride = index.distanceTo(candidate.getIndex(), originLatitude, originLongitude)
+                    / RIDE_SPEED_IN_METERS_BY_SECOND;
+            // The docks evolve the opposite way of the bikes, until the rider arrives.
+            float expectedDocks = docks - trendSource.getBikesPerMinute(candidate.getId()) * (float) (ride / 60);
+
+            double score = walk + ride + getPenalty(expectedDocks);
+            if (score < dropOffScore) {
+                dropOff = candidate;
+                dropOffScore = score;
+            }
+        }
+
+        return new Trip(pickup, dropOff, getDuration(pickup, dropOff));
+    }
+
+    private static double getPenalty(float expected) {
+        if (expected >= COMFORT_MARGIN) {
+            return 0;
+        }
+
+        return (COMFORT_MARGIN - Math.max(0, expected)) * PENALTY_IN_SECONDS;
+    }
+
+    private double getDuration(Neighbor pickup, Neighbor dropOff) {
+        if (pickup == null || dropOff == null) {
+            return 0;
+        }
+
+        return (pickup.getDistanceInMeters() + dropOff.getDistanceInMeters()) / WALK_SPEED_IN_METERS_BY_SECOND
+                + index.distanceBetween(pickup.getIndex(), dropOff.getIndex()) / RIDE_SPEED_IN_METERS_BY_SECOND;
+    }
+
+}
@@ -0,0 +1,464 @@
+package com.vlille.checker.history;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.vlille.checker.model.Station;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Records the fetched availability of the stations in a compact time series, one file by station.
+ *
+ * Each point is appended as three varints: the seconds elapsed since the previous point, and the
+ * zigzag encoded deltas of the bikes and attachs counts, so a point mostly takes 3 bytes.
+ * A point is only appended when the counts change, or every {@link #HEARTBEAT_IN_MILLIS}.
+ *
+ * The points are kept {@link #RETENTION_IN_MILLIS}. Beyond {@link #RAW_RETENTION_IN_MILLIS},
+ * they are downsampled to one averaged point per {@link #DOWNSAMPLING_STEP_IN_MILLIS}.
+ *
+ * The fetched stations are recorded on a single background thread, off the refresh path.
+ */
+public final class AvailabilityHistory {
+
+    private static final String TAG = AvailabilityHistory.class.getSimpleName();
+
+    private static final String DIRECTORY = "history";
+    private static final String EXTENSION = ".series";
+
+    private static final long ONE_HOUR_IN_MILLIS = 60 * 60 * 1000;
+
+    static final long HEARTBEAT_IN_MILLIS = 15 * 60 * 1000;
+    static final long RAW_RETENTION_IN_MILLIS = 48 * ONE_HOUR_IN_MILLIS;
+    static final long RETENTION_IN_MILLIS = 14 * 24 * ONE_HOUR_IN_MILLIS;
+    static final long DOWNSAMPLING_STEP_IN_MILLIS = ONE_HOUR_IN_MILLIS;
+    static final long COMPACTION_INTERVAL_IN_MILLIS = 6 * ONE_HOUR_IN_MILLIS;
+
+    private static final long INCOMPLETE = -1;
+
+    private static File directory;
+
+    /**
+     * The last recorded point of each station, to encode the next one without reading the file.
+     */
+    private static final Map<Long, Point> LAST_POINTS = new HashMap<>();
+    private static final Map<Long, Long> COMPACTED_AT = new HashMap<>();
+
+    private static final Executor WRITER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "availability-history");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+
+            return thread;
+        }
+    });
+
+    private AvailabilityHistory() {}
+
+    public static synchronized void init(Context context) {
+        directory = new File(context.getFilesDir(), DIRECTORY);
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.w(TAG, "Unable to create the history directory");
+        }
+    }
+
+    /**
+     * Records the availability of fetched stations, dated from their upstream update.
+     * Returns at once, the points are written in the background.
+     */
+    public static void record(List<Station> stations) {
+        long now = System.currentTimeMillis();
+
+        // Copied now, the stations being reused by the next refresh.
+        final long[] ids = new long[stations.size()];
+        final long[] times = new long[ids.length];
+        final int[] bikes = new int[ids.length];
+        final int[] attachs = new int[ids.length];
+        int count = 0;
+        for (Station station : stations) {
+            if (station.bikes == null || station.attachs == null) {
+                continue;
+            }
+
+            ids[count] = station.id;
+            times[count] = now - station.lastUpdate * 1000;
+            bikes[count] = station.getBikes();
+            attachs[count] = station.getAttachs();
+            count++;
+        }
+
+        if (count == 0) {
+            return;
+        }
+
+        final int size = count;
+        WRITER.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < size; i++) {
+                    record(ids[i], times[i], bikes[i], attachs[i]);
+                }
+            }
+        });
+    }
+
+    public static synchronized void record(long stationId, long time, int bikes, int attachs) {
+        if (directory == null) {
+            return;
+        }
+
+        File file = getFile(stationId);
+        Point last = getLastPoint(stationId, file);
+        long seconds = time / 1000;
+
+        if (last != null) {
+            if (seconds <= last.seconds) {
+                // Already recorded, the upstream data has not changed.
+                return;
+            }
+            boolean unchanged = bikes == last.bikes && attachs == last.attachs;
+            if (unchanged && (seconds - last.seconds) * 1000 < HEARTBEAT_IN_MILLIS) {
+                return;
+            }
+        }
+
+        Point point = new Point(seconds, bikes, attachs);
+        ByteArrayOutputStream output = new ByteArrayOutputStream(16);
+        writePoint(output, last, point);
+
+        if (append(file, output.toByteArray())) {
+            LAST_POINTS.put(stationId, point);
+        }
+
+        compactIfNeeded(stationId, file, System.currentTimeMillis());
+    }
+
+    /**
+     * @return the points of the station between two times, in milliseconds.
+     */
+    public static synchronized AvailabilitySeries query(long stationId, long from, long to) {
+        if (directory == null) {
+            return new AvailabilitySeries(new long[0], new int[0], new int[0], 0);
+        }
+
+        Points points = read(getFile(stationId));
+
+        long[] times = new long[points.size];
+        int[] bikes = new int[points.size];
+        int[] attachs = new int[points.size];
+        int size = 0;
+        for (int i = 0; i < points.size; i++) {
+            long time = points.seconds[i] * 1000;
+            if (time >= from && time <= to) {
+                times[size] = time;
+                bikes[size] = points.bikes[i];
+                attachs[size] = points.attachs[i];
+                size++;
+            }
+        }
+
+        return new AvailabilitySeries(times, bikes, attachs, size);
+    }
+
+    private static File getFile(long stationId) {
+        return new File(directory, stationId + EXTENSION);
+    }
+
+    private static Point getLastPoint(long stationId, File file) {
+        if (LAST_POINTS.containsKey(stationId)) {
+            return LAST_POINTS.get(stationId);
+        }
+
+        Points points = read(file);
+        Point last = points.size == 0 ? null : points.get(points.size - 1);
+        LAST_POINTS.put(stationId, last);
+
+        return last;
+    }
+
+    private static boolean append(File file, byte[] bytes) {
+        FileOutputStream output = null;
+        try {
+            output = new FileOutputStream(file, true);
+            output.write(bytes);
+
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to append to " + file, e);
+
+            return false;
+        } finally {
+            close(output);
+        }
+    }
+
+    /**
+     * Drops the expired points and downsamples the old ones, at most every
+     * {@link #COMPACTION_INTERVAL_IN_MILLIS} for a station.
+     */
+    private static void compactIfNeeded(long stationId, File file, long now) {
+        Long compactedAt = COMPACTED_AT.get(stationId);
+        if (compactedAt != null && now - compactedAt < COMPACTION_INTERVAL_IN_MILLIS) {
+            return;
+        }
+        COMPACTED_AT.put(stationId, now);
+
+        Points points = read(file);
+        if (points.size == 0) {
+            return;
+        }
+
+        long expiredBefore = (now - RETENTION_IN_MILLIS) / 1000;
+        long rawAfter = (now - RAW_RETENTION_IN_MILLIS) / 1000;
+        if (points.seconds[0] >= rawAfter) {
+            // Nothing to drop or downsample.
+            return;
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream(points.size * 3);
+        Point previous = null;
+        int i = 0;
+        while (i < points.size) {
+            long seconds = points.seconds[i];
+            if (seconds < expiredBefore) {
+                i++;
+                continue;
+            }
+            if (seconds >= rawAfter) {
+                Point point = points.get(i++);
+                writePoint(output, previous, point);
+                previous = point;
+                continue;
+            }
+
+            // Averages the points of the step.
+            long stepStart = seconds - seconds % (DOWNSAMPLING_STEP_IN_MILLIS / 1000);
+            long stepEnd = Math.min(rawAfter, stepStart + DOWNSAMPLING_STEP_IN_MILLIS / 1000);
+            int count = 0;
+            int bikes = 0;
+            int attachs = 0;
+            while (i < points.size && points.seconds[i] < stepEnd) {
+                bikes += points.bikes[i];
+                attachs += points.attachs[i];
+                count++;
+                i++;
+            }
+
+            Point point = new Point(stepStart, Math.round((float) bikes / count), Math.round((float) attachs / count));
+            if (previous == null || point.seconds > previous.seconds) {
+                writePoint(output, previous, point);
+                previous = point;
+            }
+        }
+
+        rewrite(file, output.toByteArray());
+        LAST_POINTS.put(stationId, previous);
+        Log.d(TAG, "History of station " + stationId + " compacted from " + points.size + " points");
+    }
+
+    private static void rewrite(File file, byte[] bytes) {
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        FileOutputStream output = null;
+        try {
+            output = new FileOutputStream(temporaryFile);
+            output.write(bytes);
+            output.close();
+            output = null;
+
+            if (!temporaryFile.renameTo(file)) {
+                Log.w(TAG, "Unable to rename " + temporaryFile);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to rewrite " + file, e);
+        } finally {
+            close(output);
+        }
+    }
+
+    /**
+     * Reads all the points of a file. A truncated last point, left by an interrupted write,
+     * is removed from the file.
+     */
+    private static Points read(File file) {
+        if (!file.exists()) {
+            return new Points(0);
+        }
+
+        byte[] bytes;
+        FileInputStream input = null;
+        try {
+            input = new FileInputStream(file);
+            bytes = new byte[(int) file.length()];
+            int offset = 0;
+            int read;
+            while (offset < bytes.length && (read = input.read(bytes, offset, bytes.length - offset)) != -1) {
+                offset += read;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to read " + file, e);
+
+            return new Points(0);
+        } finally {
+            close(input);
+        }
+
+        // A point takes at least 3 bytes.
+        Points points = new Points(bytes.length / 3);
+        int[] position = {0};
+        int validLength = 0;
+        long seconds = 0;
+        int bikes = 0;
+        int attachs = 0;
+        while (position[0] < bytes.length) {
+            long secondsDelta = readVarint(bytes, position);
+            long bikesDelta = readVarint(bytes, position);
+            long attachsDelta = readVarint(bytes, position);
+            if (attachsDelta == INCOMPLETE || bikesDelta == INCOMPLETE || secondsDelta == INCOMPLETE) {
+                truncate(file, validLength);
+                break;
+            }
+
+            seconds += secondsDelta;
+            bikes += decodeZigzag(bikesDelta);
+            attachs += decodeZigzag(attachsDelta);
+            points.add(seconds, bikes, attachs);
+            validLength = position[0];
+        }
+
+        return points;
+    }
+
+    private static void truncate(File file, int length) {
+        Log.w(TAG, "Truncated point in " + file);
+
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.setLength(length);
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to truncate " + file, e);
+        } finally {
+            close(randomAccessFile);
+        }
+    }
+
+    private static void writePoint(ByteArrayOutputStream output, Point previous, Point point) {
+        if (previous == null) {
+            previous = new Point(0, 0, 0);
+        }
+
+        writeVarint(output, point.seconds - previous.seconds);
+        writeVarint(output, encodeZigzag(point.bikes - previous.bikes));
+        writeVarint(output, encodeZigzag(point.attachs - previous.attachs));
+    }
+
+    private static void writeVarint(ByteArrayOutputStream output, long value) {
+        while ((value & ~0x7FL) != 0) {
+            output.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.write((int) value);
+    }
+
+    /**
+     * @return the unsigned value, or {@link #INCOMPLETE} at the end of the bytes.
+     */
+    private static long readVarint(byte[] bytes, int[] position) {
+        long value = 0;
+        int shift = 0;
+        while (position[0] < bytes.length && shift < 64) {
+            byte b = bytes[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+
+        return INCOMPLETE;
+    }
+
+    private static long encodeZigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    private static int decodeZigzag(long value) {
+        int n = (int) value;
+
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to close " + closeable, e);
+        }
+    }
+
+    private static class Point {
+
+        final long seconds;
+        final int bikes;
+        final int attachs;
+
+        Point(long seconds, int bikes, int attachs) {
+            this.seconds = seconds;
+            this.bikes = bikes;
+            this.attachs = attachs;
+        }
+    }
+
+    /**
+     * The decoded points of a file, as growable columns.
+     */
+    private static class Points {
+
+        long[] seconds;
+        int[] bikes;
+        int[] attachs;
+        int size;
+
+        Points(int capacity) {
+            seconds = new long[Math.max(capacity, 1)];
+            bikes = new int[seconds.length];
+            attachs = new int[seconds.length];
+        }
+
+        void add(long pointSeconds, int pointBikes, int pointAttachs) {
+            if (size == seconds.length) {
+                seconds = Arrays.copyOf(seconds, size * 2);
+                bikes = Arrays.copyOf(bikes, size * 2);
+                attachs = Arrays.copyOf(attachs, size * 2);
+            }
+            seconds[size] = pointSeconds;
+            bikes[size] = pointBikes;
+            attachs[size] = pointAttachs;
+            size++;
+        }
+
+        Point get(int index) {
+            return new Point(seconds[index], bikes[index], attachs[index]);
+        }
+    }
+
+}
@@ -0,0 +1,380 @@
+package com.vlille.checker.history;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.Log;
+
+import com.vlille.checker.R;
+import com.vlille.checker.model.Station;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Predicts the bikes of a station a few minutes ahead, from the trends observed on each refresh.
+ *
+ * Each station has a profile of 7 x 24 slots, one per hour of the week, holding the exponentially
+ * smoothed rate of bikes per minute observed during that hour. A new observation only updates the
+ * slot of the previous one, and a prediction reads a single slot, so both take a constant time.
+ *
+ * The profiles are saved at most every {@link #SAVE_INTERVAL_IN_MILLIS}, on a background thread,
+ * with the last observation of each station, so the first refresh after a restart can already
+ * measure a trend.
+ */
+public final class AvailabilityPredictor {
+
+    private static final String TAG = AvailabilityPredictor.class.getSimpleName();
+
+    public static final int HORIZON_IN_MINUTES = 10;
+    public static final int UNKNOWN = -1;
+
+    private static final String FILE_NAME = "predictions.profiles";
+    private static final int MAGIC = 0x564C5031; // "VLP1"
+    private static final short VERSION = 2;
+
+    /**
+     * The version without the last observations, still read.
+     */
+    private static final short VERSION_PROFILES_ONLY = 1;
+
+    private static final int SLOTS = 7 * 24;
+    private static final int HEADER_SIZE = 4 + 2 + 4;
+    private static final int PROFILE_SIZE = 8 + SLOTS * 4 + SLOTS * 2;
+    private static final int OBSERVATIONS_HEADER_SIZE = 4;
+    private static final int OBSERVATION_SIZE = 8 + 8 + 4;
+
+    private static final float SMOOTHING = 0.2f;
+    private static final int MIN_SAMPLES = 3;
+
+    private static final long ONE_MINUTE_IN_MILLIS = 60 * 1000;
+    private static final long MIN_GAP_IN_MILLIS = 2 * ONE_MINUTE_IN_MILLIS;
+    private static final long MAX_GAP_IN_MILLIS = 60 * ONE_MINUTE_IN_MILLIS;
+    private static final long SAVE_INTERVAL_IN_MILLIS = 5 * ONE_MINUTE_IN_MILLIS;
+
+    private static final Map<Long, Profile> PROFILES = new HashMap<>();
+    private static final Map<Long, Observation> LAST_OBSERVATIONS = new HashMap<>();
+    private static final Calendar CALENDAR = Calendar.getInstance();
+    private static final Object FILE_LOCK = new Object();
+
+    private static final Executor WRITER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "availability-predictor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+
+            return thread;
+        }
+    });
+
+    private static File file;
+    private static long savedAt;
+
+    private AvailabilityPredictor() {}
+
+    public static synchronized void init(Context context) {
+        file = new File(context.getFilesDir(), FILE_NAME);
+        load();
+    }
+
+    /**
+     * Learns from the availability of fetched stations, dated from their upstream update.
+     */
+    public static void observe(List<Station> stations) {
+        long now = System.currentTimeMillis();
+        byte[] profiles = null;
+
+        synchronized (AvailabilityPredictor.class) {
+            for (Station station : stations) {
+                if (station.bikes != null && station.attachs != null) {
+                    observe(station.id, now - station.lastUpdate * 1000, station.getBikes());
+                }
+            }
+
+            if (file != null && now - savedAt > SAVE_INTERVAL_IN_MILLIS) {
+                profiles = encode();
+                savedAt = now;
+            }
+        }
+
+        // Written in the background, so neither the predictions nor the refresh wait on the disk.
+        if (profiles != null) {
+            final byte[] encodedProfiles = profiles;
+            WRITER.execute(new Runnable() {
+                @Override
+                public void run() {
+                    save(encodedProfiles);
+                }
+            });
+        }
+    }
+
+    private static void observe(long stationId, long time, int bikes) {
+        Observation last = LAST_OBSERVATIONS.get(stationId);
+        if (last != null) {
+            long gap = time - last.time;
+            if (gap < MIN_GAP_IN_MILLIS) {
+                // Too close to measure a trend, keeps the previous observation.
+                return;
+            }
+            if (gap <= MAX_GAP_IN_MILLIS) {
+                Profile profile = PROFILES.get(stationId);
+                if (profile == null) {
+                    profile = new Profile();
+                    PROFILES.put(stationId, profile);
+                }
+
+                float rate = (float) (bikes - last.bikes) * ONE_MINUTE_IN_MILLIS / gap;
+                profile.add(getSlot(last.time), rate);
+            }
+        }
+
+        LAST_OBSERVATIONS.put(stationId, new Observation(time, bikes));
+    }
+
+    /**
+     * @return the bikes predicted in {@link #HORIZON_IN_MINUTES}, or {@link #UNKNOWN} while
+     * the station has not been observed enough at this time of the week.
+     */
+    public static synchronized int predictBikes(Station station) {
+        Profile profile = PROFILES.get(station.id);
+        if (profile == null || station.bikes == null || station.attachs == null) {
+            return UNKNOWN;
+        }
+
+        int slot = getSlot(System.currentTimeMillis());
+        if (profile.samples[slot] < MIN_SAMPLES) {
+            return UNKNOWN;
+        }
+
+        int bikes = station.getBikes();
+        int total = bikes + station.getAttachs();
+        int predicted = Math.round(bikes + profile.rates[slot] * HORIZON_IN_MINUTES);
+
+        return Math.max(0, Math.min(total, predicted));
+    }
+
+    /**
+     * @return the bikes gained (or lost when negative) per minute at this time of the week,
+     * 0 while the station has not been observed enough.
+     */
+    public static synchronized float getBikesPerMinute(long stationId) {
+        Profile profile = PROFILES.get(stationId);
+        if (profile == null) {
+            return 0;
+        }
+
+        int slot = getSlot(System.currentTimeMillis());
+        if (profile.samples[slot] < MIN_SAMPLES) {
+            return 0;
+        }
+
+        return profile.rates[slot];
+    }
+
+    /**
+     * @param shortText <code>true</code> for the widgets.
+     * @return the prediction to display, or null if it is unknown.
+     */
+    public static String getPredictionAsString(Resources resources, Station station, boolean shortText) {
+        int bikes = predictBikes(station);
+        if (bikes == UNKNOWN) {
+            return null;
+        }
+
+        int attachs = station.getBikes() + station.getAttachs() - bikes;
+        int resourceId = shortText ? R.string.prediction_summary_short : R.string.prediction_summary;
+
+        return resources.getString(resourceId, HORIZON_IN_MINUTES, bikes, attachs);
+    }
+
+    private static int getSlot(long time) {
+        CALENDAR.setTimeInMillis(time);
+        int day = CALENDAR.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY;
+
+        return day * 24 + CALENDAR.get(Calendar.HOUR_OF_DAY);
+    }
+
+    private static void load() {
+        if (!file.exists()) {
+            return;
+        }
+
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "r");
+            FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                Log.w(TAG, "Invalid profiles " + file);
+
+                return;
+            }
+
+            short version = buffer.getShort();
+            if (version != VERSION && version != VERSION_PROFILES_ONLY) {
+                Log.w(TAG, "Unsupported profiles version " + version);
+
+                return;
+            }
+
+            int count = buffer.getInt();
+            if (count < 0 || buffer.remaining() < count * PROFILE_SIZE) {
+                Log.w(TAG, "Truncated profiles " + file);
+
+                return;
+            }
+
+            for (int i = 0; i < count; i++) {
+                long stationId = buffer.getLong();
+                Profile profile = new Profile();
+                buffer.asFloatBuffer().get(profile.rates);
+                buffer.position(buffer.position() + SLOTS * 4);
+                buffer.asShortBuffer().get(profile.samples);
+                buffer.position(buffer.position() + SLOTS * 2);
+
+                PROFILES.put(stationId, profile);
+            }
+            Log.d(TAG, count + " profiles loaded");
+
+            if (version == VERSION) {
+                loadObservations(buffer);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to read the profiles " + file, e);
+        } finally {
+            close(randomAccessFile);
+        }
+    }
+
+    private static void loadObservations(ByteBuffer buffer) {
+        if (buffer.remaining() < OBSERVATIONS_HEADER_SIZE) {
+            Log.w(TAG, "Truncated observations " + file);
+
+            return;
+        }
+
+        int count = buffer.getInt();
+        if (count < 0 || buffer.remaining() < count * OBSERVATION_SIZE) {
+            Log.w(TAG, "Truncated observations " + file);
+
+            return;
+        }
+
+        for (int i = 0; i < count; i++) {
+            long stationId = buffer.getLong();
+            long time = buffer.getLong();
+            int bikes = buffer.getInt();
+
+            LAST_OBSERVATIONS.put(stationId, new Observation(time, bikes));
+        }
+        Log.d(TAG, count + " observations loaded");
+    }
+
+    private static byte[] encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + PROFILES.size() * PROFILE_SIZE
+                + OBSERVATIONS_HEADER_SIZE + LAST_OBSERVATIONS.size() * OBSERVATION_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putInt(PROFILES.size());
+        for (Map.Entry<Long, Profile> entry : PROFILES.entrySet()) {
+            buffer.putLong(entry.getKey());
+            for (float rate : entry.getValue().rates) {
+                buffer.putFloat(rate);
+            }
+            for (short samples : entry.getValue().samples) {
+                buffer.putShort(samples);
+            }
+        }
+        buffer.putInt(LAST_OBSERVATIONS.size());
+        for (Map.Entry<Long, Observation> entry : LAST_OBSERVATIONS.entrySet()) {
+            buffer.putLong(entry.getKey());
+            buffer.putLong(entry.getValue().time);
+            buffer.putInt(entry.getValue().bikes);
+        }
+
+        return buffer.array();
+    }
+
+    private static void save(byte[] profiles) {
+        synchronized (FILE_LOCK) {
+            write(profiles);
+        }
+    }
+
+    private static void write(byte[] profiles) {
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        FileOutputStream output = null;
+        try {
+            output = new FileOutputStream(temporaryFile);
+            output.write(profiles);
+            output.close();
+            output = null;
+
+            if (!temporaryFile.renameTo(file)) {
+                Log.w(TAG, "Unable to rename " + temporaryFile);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to write the profiles " + file, e);
+        } finally {
+            close(output);
+        }
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to close " + closeable, e);
+        }
+    }
+
+    private static class Observation {
+
+        final long time;
+        final int bikes;
+
+        Observation(long time, int bikes) {
+            this.time = time;
+            this.bikes = bikes;
+        }
+    }
+
+    /**
+     * The smoothed rates of bikes per minute of a station, by hour of the week.
+     */
+    private static class Profile {
+
+        final float[] rates = new float[SLOTS];
+        final short[] samples = new short[SLOTS];
+
+        void add(int slot, float rate) {
+            if (samples[slot] == 0) {
+                rates[slot] = rate;
+            } else {
+                rates[slot] = SMOOTHING * rate + (1 - SMOOTHING) * rates[slot];
+            }
+            if (samples[slot] < Short.MAX_VALUE) {
+                samples[slot]++;
+            }
+        }
+    }
+
+}
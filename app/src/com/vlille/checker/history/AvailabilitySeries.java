@@ -0,0 +1,52 @@
+package com.vlille.checker.history;
+
+/**
+ * The recorded availability of a station over a time range, as parallel columns.
+ */
+public class AvailabilitySeries {
+
+    private final long[] times;
+    private final int[] bikes;
+    private final int[] attachs;
+    private final int size;
+
+    AvailabilitySeries(long[] times, int[] bikes, int[] attachs, int size) {
+        this.times = times;
+        this.bikes = bikes;
+        this.attachs = attachs;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the time of the point, in milliseconds.
+     */
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    public int getBikes(int index) {
+        return bikes[index];
+    }
+
+    public int getAttachs(int index) {
+        return attachs[index];
+    }
+
+    public int getMaxTotal() {
+        int max = 0;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, bikes[i] + attachs[i]);
+        }
+
+        return max;
+    }
+
+}
@@ -6,7 +6,9 @@ import android.view.View;
 
 import com.vlille.checker.R;
 import com.vlille.checker.db.DB;
+import com.vlille.checker.geo.Located;
 import com.vlille.checker.utils.NumberUtils;
+import com.vlille.checker.utils.TextFolding;
 import com.vlille.checker.utils.TextPlural;
 
 import org.droidparts.annotation.sql.Column;
@@ -21,7 +23,7 @@ import java.util.List;
  * Represents the details of a single vlille station.
  */
 @Table(name = DB.Table.STATION)
-public class Station extends Entity {
+public class Station extends Entity implements Located {
 
     public static final String ID = "_id";
     public static final String NAME = "suggest_text_1";
@@ -99,6 +101,24 @@ public class Station extends Entity {
 
     private boolean fetchInError;
 
+    /**
+     * The values are the last known ones, the last fetch has failed.
+     */
+    private boolean stale;
+
+    /**
+     * The time of the upstream record in milliseconds, or 0 if unknown. Unlike
+     * {@link #lastUpdate}, the age of the record when it was fetched, it does not move
+     * between two fetches of the same record.
+     */
+    private transient long recordedAt;
+
+    /**
+     * The display name with id and the folded search key, computed once from the name.
+     */
+    private transient String nameWithId;
+    private transient String searchKey;
+
     public GeoPoint getGeoPoint() {
         return new GeoPoint(latitudeE6, longitudeE6);
     }
@@ -110,7 +130,11 @@ public class Station extends Entity {
     }
 
     public String getName() {
-        return id + " - " + name;
+        if (nameWithId == null) {
+            nameWithId = id + " - " + name;
+        }
+
+        return nameWithId;
     }
 
     public String getName(boolean idVisible) {
@@ -123,6 +147,19 @@ public class Station extends Entity {
 
     public void setName(String name) {
         this.name = name;
+        this.nameWithId = null;
+        this.searchKey = null;
+    }
+
+    /**
+     * Gets the name without id, accents and case, used for the comparisons.
+     */
+    public String getSearchKey() {
+        if (searchKey == null) {
+            searchKey = TextFolding.fold(name);
+        }
+
+        return searchKey;
     }
 
     public int getLatitudeE6() {
@@ -280,6 +317,14 @@ public class Station extends Entity {
         this.lastUpdate = lastUpdate;
     }
 
+    public long getRecordedAt() {
+        return recordedAt;
+    }
+
+    public void setRecordedAt(long recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+
     public boolean isStarred() {
         return starred;
     }
@@ -316,6 +361,14 @@ public class Station extends Entity {
         this.fetchInError = false;
     }
 
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void setStale(boolean stale) {
+        this.stale = stale;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null) {
@@ -0,0 +1,43 @@
+package com.vlille.checker.sync;
+
+import android.util.Log;
+
+import com.vlille.checker.dataset.stream.AvailabilityStream;
+import com.vlille.checker.db.DBAction;
+import com.vlille.checker.model.Station;
+
+import java.util.List;
+
+/**
+ * Refreshes the availability of every station stored in the database,
+ * so the screens and the widgets open on recent values.
+ */
+public class StationsSync extends DBAction {
+
+    private static final String TAG = StationsSync.class.getSimpleName();
+
+    /**
+     * Fetches the stations, whose availability is then written in the database by the store.
+     *
+     * @return <code>true</code> if the stations are up to date, <code>false</code> if the fetch failed.
+     */
+    public boolean sync() {
+        List<Station> stations = getInDBStations();
+        if (stations.isEmpty()) {
+            Log.d(TAG, "No station in db, nothing to sync");
+
+            return true;
+        }
+
+        if (!AvailabilityStream.fetch(stations, false)) {
+            Log.d(TAG, "Failed to fetch the stations");
+
+            return false;
+        }
+
+        Log.d(TAG, stations.size() + " stations synced");
+
+        return true;
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.vlille.checker.sync;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * The job refreshing the stations in background.
+ *
+ * @see StationsSyncScheduler
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class StationsSyncJobService extends JobService {
+
+    private static final String TAG = StationsSyncJobService.class.getSimpleName();
+
+    private SyncAsyncTask asyncTask;
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        Log.d(TAG, "Start job " + params.getJobId());
+
+        asyncTask = new SyncAsyncTask(params);
+        asyncTask.execute();
+
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        Log.d(TAG, "Stop job " + params.getJobId());
+
+        if (asyncTask != null) {
+            asyncTask.cancel(false);
+        }
+
+        // Reschedule with the backoff policy.
+        return true;
+    }
+
+    class SyncAsyncTask extends AsyncTask<Void, Void, Boolean> {
+
+        private final JobParameters params;
+
+        SyncAsyncTask(JobParameters params) {
+            this.params = params;
+        }
+
+        @Override
+        protected Boolean doInBackground(Void... voids) {
+            return new StationsSync().sync();
+        }
+
+        @Override
+        protected void onPostExecute(Boolean synced) {
+            super.onPostExecute(synced);
+
+            // On error, the job is rescheduled with an exponential backoff.
+            jobFinished(params, !synced);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.vlille.checker.sync;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import com.vlille.checker.utils.ContextHelper;
+
+/**
+ * Schedules the background refresh of the stations.
+ *
+ * The refresh runs at the configured interval when the device is on an unmetered network,
+ * or when it is charging. As the job constraints can not be combined with a "or", each
+ * condition has its own job, the second run being skipped while the stations are fresh.
+ *
+ * The background refresh requires the JobScheduler, so it is disabled before Lollipop.
+ */
+public final class StationsSyncScheduler {
+
+    private static final String TAG = StationsSyncScheduler.class.getSimpleName();
+
+    private static final int JOB_ID_UNMETERED = 4201;
+    private static final int JOB_ID_CHARGING = 4202;
+
+    private static final long ONE_MINUTE_IN_MILLIS = 60 * 1000;
+    private static final long INITIAL_BACKOFF_IN_MILLIS = 30 * 1000;
+
+    private StationsSyncScheduler() {}
+
+    /**
+     * Schedules the refresh with the interval from the preferences.
+     */
+    public static void schedule(Context context) {
+        schedule(context, ContextHelper.getSyncIntervalInMinutes(context));
+    }
+
+    /**
+     * Schedules the refresh, or cancels it when the interval is 0.
+     */
+    public static void schedule(Context context, int intervalInMinutes) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            Log.d(TAG, "Background update not supported");
+
+            return;
+        }
+
+        doSchedule(context, intervalInMinutes * ONE_MINUTE_IN_MILLIS);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static void doSchedule(Context context, long intervalInMillis) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (intervalInMillis <= 0) {
+            Log.d(TAG, "Cancel background update");
+            jobScheduler.cancel(JOB_ID_UNMETERED);
+            jobScheduler.cancel(JOB_ID_CHARGING);
+
+            return;
+        }
+
+        if (isScheduled(jobScheduler, intervalInMillis)) {
+            Log.d(TAG, "Background update already scheduled");
+
+            return;
+        }
+
+        Log.d(TAG, "Schedule background update every " + intervalInMillis + " ms");
+        jobScheduler.schedule(newJob(context, JOB_ID_UNMETERED, intervalInMillis)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .build());
+        jobScheduler.schedule(newJob(context, JOB_ID_CHARGING, intervalInMillis)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setRequiresCharging(true)
+                .build());
+    }
+
+    /**
+     * Checks if both jobs are already pending with the same interval, to keep their period running.
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static boolean isScheduled(JobScheduler jobScheduler, long intervalInMillis) {
+        int scheduled = 0;
+        for (JobInfo jobInfo : jobScheduler.getAllPendingJobs()) {
+            boolean syncJob = jobInfo.getId() == JOB_ID_UNMETERED || jobInfo.getId() == JOB_ID_CHARGING;
+            if (syncJob && jobInfo.getIntervalMillis() == intervalInMillis) {
+                scheduled++;
+            }
+        }
+
+        return scheduled == 2;
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static JobInfo.Builder newJob(Context context, int jobId, long intervalInMillis) {
+        return new JobInfo.Builder(jobId, new ComponentName(context, StationsSyncJobService.class))
+                .setPeriodic(intervalInMillis)
+                .setPersisted(true)
+                .setBackoffCriteria(INITIAL_BACKOFF_IN_MILLIS, JobInfo.BACKOFF_POLICY_EXPONENTIAL);
+    }
+
+}
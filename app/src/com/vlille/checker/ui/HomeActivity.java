@@ -19,6 +19,7 @@ import com.vlille.checker.ui.async.AsyncTaskResultListener;
 import com.vlille.checker.ui.async.DBUpdaterAsyncTask;
 import com.vlille.checker.ui.fragment.AllStationsFragment;
 import com.vlille.checker.ui.fragment.MapFragment;
+import com.vlille.checker.ui.fragment.NearbyStationsFragment;
 import com.vlille.checker.ui.fragment.StarsListFragment;
 import com.vlille.checker.ui.listener.TabListener;
 import com.vlille.checker.utils.ContextHelper;
@@ -83,6 +84,11 @@ public class HomeActivity extends AppCompatActivity implements SnackBar.OnMessag
                 .newTab()
                 .setIcon(R.drawable.ic_tab_map_white)
                 .setTabListener(new TabListener<MapFragment>(this, "map", MapFragment.class)));
+        actionBar.addTab(actionBar
+                .newTab()
+                .setIcon(android.R.drawable.ic_menu_mylocation)
+                .setContentDescription(R.string.stations_nearby)
+                .setTabListener(new TabListener<NearbyStationsFragment>(this, "nearby", NearbyStationsFragment.class)));
         actionBar.setNavigationMode(ActionBar.NAVIGATION_MODE_TABS);
     }
 
@@ -122,7 +128,7 @@ public class HomeActivity extends AppCompatActivity implements SnackBar.OnMessag
                 break;
             case R.id.main_menu_refresh:
                 DBFiller dbFiller = new DBFiller(this, true);
-                if (dbFiller.isDBEmpty()) {
+                if (dbFiller.isNeverFilled()) {
                     dbFiller.fill();
                 } else {
                     getCurrentFragment().onResume();
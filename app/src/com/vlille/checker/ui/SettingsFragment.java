@@ -19,8 +19,10 @@ import com.vlille.checker.R;
 import com.vlille.checker.db.MetadataEntityManager;
 import com.vlille.checker.db.StationEntityManager;
 import com.vlille.checker.model.Metadata;
+import com.vlille.checker.sync.StationsSyncScheduler;
 import com.vlille.checker.ui.osm.location.LocationManagerWrapper;
 import com.vlille.checker.utils.ContextHelper;
+import com.vlille.checker.utils.NumberUtils;
 import com.vlille.checker.utils.PreferenceKeys;
 
 import org.droidparts.Injector;
@@ -77,6 +79,7 @@ public class SettingsFragment extends PreferenceFragmentCompat
         setVersionNumber();
         onChangeGpsActivated();
         onChangeRadiusValue();
+        onChangeSyncInterval();
     }
 
     private void setLastDataStatusUpdate() {
@@ -135,6 +138,22 @@ public class SettingsFragment extends PreferenceFragmentCompat
         });
     }
 
+    private void onChangeSyncInterval() {
+        final Preference prefSyncInterval = findPreference(PreferenceKeys.SYNC_INTERVAL);
+        prefSyncInterval.setOnPreferenceChangeListener(new Preference.OnPreferenceChangeListener() {
+
+            @Override
+            public boolean onPreferenceChange(Preference preference, Object newValue) {
+                int intervalInMinutes = NumberUtils.toInt((String) newValue, NumberUtils.INTEGER_ZERO);
+                Log.d(TAG, "Background update interval changed to " + intervalInMinutes);
+
+                StationsSyncScheduler.schedule(getContext(), intervalInMinutes);
+
+                return true;
+            }
+        });
+    }
+
     @Override
     public void onResume() {
         super.onResume();
@@ -1,6 +1,7 @@
 package com.vlille.checker.ui;
 
 import android.content.Intent;
+import android.location.Location;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.util.Log;
@@ -10,8 +11,15 @@ import android.widget.ImageButton;
 import android.widget.TextView;
 
 import com.vlille.checker.R;
+import com.vlille.checker.geo.GeoMath;
+import com.vlille.checker.geo.TripPlanner;
+import com.vlille.checker.history.AvailabilitySeries;
 import com.vlille.checker.model.Station;
 import com.vlille.checker.model.StationHolder;
+import com.vlille.checker.ui.async.AvailabilityHistoryAsyncTask;
+import com.vlille.checker.ui.async.TripPlannerAsyncTask;
+import com.vlille.checker.ui.history.AvailabilityChartView;
+import com.vlille.checker.ui.osm.location.LocationUpdates;
 import com.vlille.checker.utils.MapsIntentChooser;
 import com.vlille.checker.utils.ViewUtils;
 import com.vlille.checker.utils.color.ColorSelector;
@@ -20,6 +28,8 @@ public class StationInfoActivity extends AppCompatActivity {
 
     private static final String TAG = StationInfoActivity.class.getSimpleName();
 
+    private static final long HISTORY_DURATION_IN_MILLIS = 24 * 60 * 60 * 1000;
+
     private StationHolder holder;
     private ImageButton btnStar;
 
@@ -64,6 +74,20 @@ public class StationInfoActivity extends AppCompatActivity {
         handleBtnStar();
         handleBtnToLocate();
         handleBtnToItinerary();
+        loadHistory();
+    }
+
+    private void loadHistory() {
+        final AvailabilityChartView chartView = (AvailabilityChartView) findViewById(R.id.station_history_chart);
+
+        long now = System.currentTimeMillis();
+        new AvailabilityHistoryAsyncTask(holder.getStation().getId(), now - HISTORY_DURATION_IN_MILLIS, now,
+                new AvailabilityHistoryAsyncTask.AvailabilityHistoryDelegate() {
+                    @Override
+                    public void handleResult(AvailabilitySeries series, long from, long to) {
+                        chartView.setSeries(series, from, to);
+                    }
+                }).execute();
     }
 
     private void handleBtnStar() {
@@ -120,11 +144,42 @@ public class StationInfoActivity extends AppCompatActivity {
             @Override
             public void onClick(View v) {
                 Log.d(TAG, "Opening map intent");
-                MapsIntentChooser.chooseIntent(getApplicationContext(), holder.getStation());
+                showItinerary();
             }
         });
     }
 
+    /**
+     * Walks to the station when it is close, otherwise walks to the best pickup station near
+     * the location, then rides to this station.
+     */
+    private void showItinerary() {
+        final Station station = holder.getStation();
+        final Location location = LocationUpdates.getLastLocation(this);
+        if (location == null
+                || GeoMath.haversine(location.getLatitude(), location.getLongitude(),
+                station.getLatitude(), station.getLongitude()) <= TripPlanner.DEFAULT_MAX_WALK_IN_METERS) {
+            MapsIntentChooser.chooseIntent(getApplicationContext(), station);
+
+            return;
+        }
+
+        new TripPlannerAsyncTask(this,
+                location.getLatitude(), location.getLongitude(),
+                station.getLatitude(), station.getLongitude(),
+                new TripPlannerAsyncTask.TripPlannerDelegate() {
+                    @Override
+                    public void handleResult(Station pickup, Station dropOff) {
+                        // The selected station stays the destination, only the pickup is suggested.
+                        if (pickup == null || pickup.id == station.id) {
+                            MapsIntentChooser.chooseIntent(getApplicationContext(), station);
+                        } else {
+                            MapsIntentChooser.chooseTripIntent(getApplicationContext(), location, pickup, station);
+                        }
+                    }
+                }).execute();
+    }
+
     private TextView getTextView(int resourceId) {
         return (TextView) findViewById(resourceId);
     }
@@ -4,9 +4,9 @@ import android.os.AsyncTask;
 import android.util.Log;
 
 import com.vlille.checker.dataset.StationRepository;
+import com.vlille.checker.dataset.stream.AvailabilityStream;
 import com.vlille.checker.model.Station;
 import com.vlille.checker.ui.HomeActivity;
-import com.vlille.checker.ui.delegate.StationUpdateDelegate;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -19,14 +19,26 @@ public abstract class AbstractStationsAsyncTask extends AsyncTask<List<Station>,
     private static final String TAG = "AsyncStationTaskUpdater";
 
     private final HomeActivity homeActivity;
-    private final StationUpdateDelegate delegate;
 
     private boolean plateformUnstableState;
     private boolean platformUpdateIssueState;
 
-    protected AbstractStationsAsyncTask(HomeActivity homeActivity, StationUpdateDelegate delegate) {
+    /**
+     * Fetches the stations even if they have been fetched recently.
+     */
+    private boolean forceFetch;
+
+    /**
+     * Fetches the stations by batches of this size in their order, 0 to fetch them all at once.
+     */
+    private int progressiveBatchSize;
+
+    /**
+     * The refreshed stations are written in the database once, by the
+     * {@link com.vlille.checker.dataset.StationStore}.
+     */
+    protected AbstractStationsAsyncTask(HomeActivity homeActivity) {
         this.homeActivity = homeActivity;
-        this.delegate = delegate;
     }
 
     @Override
@@ -51,34 +63,45 @@ public abstract class AbstractStationsAsyncTask extends AsyncTask<List<Station>,
         int countStationsFetchInError = 0;
         int countStationsWithLastUpdateExceedingTwoMinutes = 0;
 
-        StationRepository.fillStationsCache();
+        int batchSize = progressiveBatchSize > 0 ? progressiveBatchSize : stations.size();
+        for (int from = 0; from < stations.size(); from += batchSize) {
+            List<Station> batch = stations.subList(from, Math.min(stations.size(), from + batchSize));
+            AvailabilityStream.fetch(batch, forceFetch);
 
-        for (Station station : stations) {
-            if (isCancelled()) {
-                Log.d(TAG, "Task has been cancelled.");
+            for (Station station : batch) {
+                if (isCancelled()) {
+                    Log.d(TAG, "Task has been cancelled.");
 
-                return stations;
-            }
+                    return stations;
+                }
 
-            station = StationRepository.getStationFromCache(station);
-            delegate.update(station);
+                station = StationRepository.getStationFromCache(station);
 
-            if (station.isFetchInError()) {
-                countStationsFetchInError++;
-            }
-            if (station.isLastUpdateTimeExceedTwoMinutes()) {
-                countStationsWithLastUpdateExceedingTwoMinutes++;
-            }
+                if (station.isFetchInError() || station.isStale()) {
+                    countStationsFetchInError++;
+                }
+                if (station.isLastUpdateTimeExceedTwoMinutes()) {
+                    countStationsWithLastUpdateExceedingTwoMinutes++;
+                }
 
-            publishProgress();
+                publishProgress();
+            }
         }
 
-        plateformUnstableState = countStationsFetchInError == stations.size();
-        platformUpdateIssueState = countStationsWithLastUpdateExceedingTwoMinutes == stations.size();
+        plateformUnstableState = !stations.isEmpty() && countStationsFetchInError == stations.size();
+        platformUpdateIssueState = !stations.isEmpty() && countStationsWithLastUpdateExceedingTwoMinutes == stations.size();
 
         return stations;
     }
 
+    public void setForceFetch(boolean forceFetch) {
+        this.forceFetch = forceFetch;
+    }
+
+    public void setProgressiveBatchSize(int progressiveBatchSize) {
+        this.progressiveBatchSize = progressiveBatchSize;
+    }
+
     @Override
     protected void onPostExecute(List<Station> stations) {
         super.onPostExecute(stations);
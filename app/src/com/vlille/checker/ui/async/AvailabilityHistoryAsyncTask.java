@@ -0,0 +1,40 @@
+package com.vlille.checker.ui.async;
+
+import android.os.AsyncTask;
+
+import com.vlille.checker.history.AvailabilityHistory;
+import com.vlille.checker.history.AvailabilitySeries;
+
+/**
+ * Reads the recorded availability of a station over a time range.
+ */
+public class AvailabilityHistoryAsyncTask extends AsyncTask<Void, Void, AvailabilitySeries> {
+
+    private final long stationId;
+    private final long from;
+    private final long to;
+    private final AvailabilityHistoryDelegate delegate;
+
+    public AvailabilityHistoryAsyncTask(long stationId, long from, long to, AvailabilityHistoryDelegate delegate) {
+        this.stationId = stationId;
+        this.from = from;
+        this.to = to;
+        this.delegate = delegate;
+    }
+
+    @Override
+    protected AvailabilitySeries doInBackground(Void... params) {
+        return AvailabilityHistory.query(stationId, from, to);
+    }
+
+    @Override
+    protected void onPostExecute(AvailabilitySeries series) {
+        delegate.handleResult(series, from, to);
+
+        super.onPostExecute(series);
+    }
+
+    public interface AvailabilityHistoryDelegate {
+        void handleResult(AvailabilitySeries series, long from, long to);
+    }
+}
@@ -0,0 +1,67 @@
+package com.vlille.checker.ui.async;
+
+import android.content.Context;
+import android.os.AsyncTask;
+
+import com.vlille.checker.dataset.StationsAvailability;
+import com.vlille.checker.db.StationEntityManager;
+import com.vlille.checker.geo.TripPlanner;
+import com.vlille.checker.model.Station;
+
+import java.util.List;
+
+/**
+ * Suggests the pickup and drop-off stations of a trip, from the stations in db and their
+ * last known availability.
+ */
+public class TripPlannerAsyncTask extends AsyncTask<Void, Void, TripPlanner.Trip> {
+
+    private final Context context;
+    private final double originLatitude;
+    private final double originLongitude;
+    private final double destinationLatitude;
+    private final double destinationLongitude;
+    private final TripPlannerDelegate delegate;
+
+    private List<Station> stations;
+
+    public TripPlannerAsyncTask(Context context,
+                                double originLatitude, double originLongitude,
+                                double destinationLatitude, double destinationLongitude,
+                                TripPlannerDelegate delegate) {
+        this.context = context.getApplicationContext();
+        this.originLatitude = originLatitude;
+        this.originLongitude = originLongitude;
+        this.destinationLatitude = destinationLatitude;
+        this.destinationLongitude = destinationLongitude;
+        this.delegate = delegate;
+    }
+
+    @Override
+    protected TripPlanner.Trip doInBackground(Void... params) {
+        stations = new StationEntityManager(context).findAll();
+
+        return StationsAvailability.newTripPlanner(stations)
+                .plan(originLatitude, originLongitude, destinationLatitude, destinationLongitude);
+    }
+
+    @Override
+    protected void onPostExecute(TripPlanner.Trip trip) {
+        if (trip.isFound()) {
+            delegate.handleResult(stations.get(trip.getPickup().getIndex()), stations.get(trip.getDropOff().getIndex()));
+        } else {
+            delegate.handleResult(null, null);
+        }
+
+        super.onPostExecute(trip);
+    }
+
+    public interface TripPlannerDelegate {
+
+        /**
+         * @param pickup the station to pick up a bike, or null if no trip is found.
+         * @param dropOff the station to drop it off, or null if no trip is found.
+         */
+        void handleResult(Station pickup, Station dropOff);
+    }
+}
@@ -18,6 +18,11 @@ import java.util.List;
  */
 public class AllStationsFragment extends StationsListFragment implements SearchableComponent.ViewParent {
 
+    /**
+     * Delay before refreshing the filtered stations, to avoid a refresh on each keystroke.
+     */
+    private static final long FILTER_REFRESH_DELAY_IN_MILLIS = 500;
+
     /**
      * The original overall stations list, used for the filter by name.
      */
@@ -25,6 +30,13 @@ public class AllStationsFragment extends StationsListFragment implements Searcha
 
     private SearchableComponent searchableComponent;
 
+    private final Runnable filterRefresh = new Runnable() {
+        @Override
+        public void run() {
+            updateVisibleItems();
+        }
+    };
+
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
@@ -37,6 +49,7 @@ public class AllStationsFragment extends StationsListFragment implements Searcha
     public void onPause() {
         super.onPause();
 
+        getListView().removeCallbacks(filterRefresh);
         this.searchableComponent.hideInputMethodManager();
     }
 
@@ -77,7 +90,10 @@ public class AllStationsFragment extends StationsListFragment implements Searcha
     @Override
     public void afterFilterElements() {
         setListAdapter();
-        updateVisibleItemsAsRunnable();
+
+        ListView listView = getListView();
+        listView.removeCallbacks(filterRefresh);
+        listView.postDelayed(filterRefresh, FILTER_REFRESH_DELAY_IN_MILLIS);
     }
 
     @Override
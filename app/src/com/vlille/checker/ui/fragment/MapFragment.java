@@ -10,6 +10,7 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import com.vlille.checker.R;
+import com.vlille.checker.dataset.StationRepository;
 import com.vlille.checker.db.StationEntityManager;
 import com.vlille.checker.model.Station;
 import com.vlille.checker.ui.HomeActivity;
@@ -83,6 +84,7 @@ public class MapFragment extends Fragment implements StationUpdateDelegate, Easy
         checkPermissions();
 
         List<Station> stations = stationEntityManager.findAll();
+        StationRepository.applyCachedValues(stations);
 
         mapView.setMapInfos(state, stations);
         mapView.setHomeActivity((HomeActivity) getActivity());
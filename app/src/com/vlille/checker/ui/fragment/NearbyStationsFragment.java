@@ -0,0 +1,153 @@
+package com.vlille.checker.ui.fragment;
+
+import android.Manifest;
+import android.location.Location;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.vlille.checker.R;
+import com.vlille.checker.geo.DistanceSorter;
+import com.vlille.checker.geo.GeoMath;
+import com.vlille.checker.model.Station;
+import com.vlille.checker.ui.fragment.adapter.StationsAdapter;
+import com.vlille.checker.ui.osm.location.LocationUpdates;
+import com.vlille.checker.utils.ContextHelper;
+import com.vlille.checker.utils.ViewUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pub.devrel.easypermissions.AfterPermissionGranted;
+import pub.devrel.easypermissions.EasyPermissions;
+
+/**
+ * A fragment to list the stations sorted by their distance from the current location.
+ *
+ * Only the stations within the preferences radius are refreshed.
+ */
+public class NearbyStationsFragment extends StationsListFragment implements LocationUpdates.Listener {
+
+    private static final String TAG = NearbyStationsFragment.class.getSimpleName();
+
+    private static final int REQUEST_CODE_LOCATION = 43;
+
+    private DistanceSorter<Station> distanceSorter;
+
+    /**
+     * The last location, null until the first fix.
+     */
+    private Location location;
+
+    private final StationsAdapter.DistanceProvider distanceProvider = new StationsAdapter.DistanceProvider() {
+        @Override
+        public double getDistance(int position) {
+            if (distanceSorter == null || !distanceSorter.isSorted()) {
+                return -1;
+            }
+
+            return distanceSorter.getDistance(position);
+        }
+    };
+
+    @Override
+    protected int getSwipeableResource() {
+        return R.layout.nearby_list_layout;
+    }
+
+    @Override
+    protected void loadStations() {
+        List<Station> stations = stationEntityManager.findAll();
+        distanceSorter = new DistanceSorter<>(stations);
+        if (location != null) {
+            distanceSorter.sort(location.getLatitude(), location.getLongitude());
+        }
+
+        setStations(stations);
+    }
+
+    @Override
+    protected StationsAdapter.DistanceProvider getDistanceProvider() {
+        return distanceProvider;
+    }
+
+    @Override
+    protected List<Station> filterStationsToRefresh(List<Station> stations) {
+        List<Station> nearby = new ArrayList<>(stations.size());
+        if (location == null) {
+            return nearby;
+        }
+
+        long radius = ContextHelper.getRadiusValue(getActivity());
+        for (Station station : stations) {
+            double distance = GeoMath.haversine(location.getLatitude(), location.getLongitude(),
+                    station.getLatitude(), station.getLongitude());
+            if (distance <= radius) {
+                nearby.add(station);
+            }
+        }
+
+        return nearby;
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+
+        startLocationUpdates();
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+
+        LocationUpdates.unsubscribe(this);
+    }
+
+    @AfterPermissionGranted(REQUEST_CODE_LOCATION)
+    private void startLocationUpdates() {
+        if (!EasyPermissions.hasPermissions(getContext(), Manifest.permission.ACCESS_FINE_LOCATION)) {
+            EasyPermissions.requestPermissions(this, getString(R.string.permission_missing),
+                    REQUEST_CODE_LOCATION,
+                    Manifest.permission.ACCESS_FINE_LOCATION);
+
+            return;
+        }
+
+        LocationUpdates.subscribe(getActivity(), this);
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode,
+                                           @NonNull String[] permissions,
+                                           @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+
+        EasyPermissions.onRequestPermissionsResult(requestCode, permissions, grantResults, this);
+    }
+
+    @Override
+    public void onLocationChanged(Location location) {
+        Log.d(TAG, "onLocationChanged " + location);
+        if (getView() == null) {
+            return;
+        }
+
+        this.location = location;
+        ViewUtils.switchView(getView().findViewById(R.id.nearby_waiting_location), false);
+
+        if (distanceSorter == null) {
+            // The stations are sorted once loaded.
+            return;
+        }
+
+        distanceSorter.sort(location.getLatitude(), location.getLongitude());
+        notifyStationsChanged();
+        updateVisibleItems();
+    }
+
+    @Override
+    protected boolean isReadOnly() {
+        return true;
+    }
+
+}
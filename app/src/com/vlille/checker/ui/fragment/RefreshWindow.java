@@ -0,0 +1,62 @@
+package com.vlille.checker.ui.fragment;
+
+import com.vlille.checker.dataset.StationFreshness;
+import com.vlille.checker.model.Station;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Selects the stations of a list to refresh: the visible rows plus a margin above and below,
+ * skipping the stations refreshed within the freshness delay, possibly by another screen.
+ */
+class RefreshWindow {
+
+    private final int marginRows;
+    private final long freshnessInMillis;
+
+    RefreshWindow(int marginRows, long freshnessInMillis) {
+        this.marginRows = marginRows;
+        this.freshnessInMillis = freshnessInMillis;
+    }
+
+    /**
+     * Gets the stations to refresh, the visible ones first, then those below and above.
+     *
+     * @param stations     the list stations.
+     * @param firstVisible the first visible position, inclusive.
+     * @param lastVisible  the last visible position, exclusive.
+     * @param force        <code>true</code> to ignore the freshness of the stations.
+     * @param freshStations receives the fresh stations of the window, not to fetch but still to
+     *                      update from the cache.
+     */
+    List<Station> select(List<Station> stations, int firstVisible, int lastVisible, boolean force,
+                         List<Station> freshStations) {
+        int size = stations.size();
+        int first = Math.max(0, Math.min(firstVisible, size));
+        int last = Math.max(first, Math.min(lastVisible, size));
+        int from = Math.max(0, first - marginRows);
+        int to = Math.min(size, last + marginRows);
+
+        List<Station> selection = new ArrayList<>(to - from);
+
+        addStale(selection, freshStations, stations, first, last, force);
+        addStale(selection, freshStations, stations, last, to, force);
+        addStale(selection, freshStations, stations, from, first, force);
+
+        return selection;
+    }
+
+    private void addStale(List<Station> selection, List<Station> freshStations,
+                          List<Station> stations, int from, int to, boolean force) {
+        for (int i = from; i < to; i++) {
+            Station station = stations.get(i);
+            if (force || !StationFreshness.isFresh(station.getId(), freshnessInMillis)) {
+                selection.add(station);
+            } else {
+                freshStations.add(station);
+            }
+        }
+    }
+
+}
@@ -2,6 +2,7 @@ package com.vlille.checker.ui.fragment;
 
 import android.content.Context;
 import android.content.Intent;
+import android.content.res.Resources;
 import android.os.Bundle;
 import android.support.v4.widget.SwipeRefreshLayout;
 import android.support.v7.app.ActionBar;
@@ -13,6 +14,8 @@ import android.widget.AbsListView;
 import android.widget.AdapterView;
 
 import com.vlille.checker.R;
+import com.vlille.checker.dataset.StationRepository;
+import com.vlille.checker.dataset.stream.AvailabilityStream;
 import com.vlille.checker.db.StationEntityManager;
 import com.vlille.checker.model.Station;
 import com.vlille.checker.model.StationHolder;
@@ -28,7 +31,11 @@ import com.vlille.checker.utils.ContextHelper;
 import org.droidparts.annotation.inject.InjectDependency;
 import org.droidparts.fragment.support.v4.ListFragment;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A generic fragment to load and handle selectable stations.
@@ -36,7 +43,8 @@ import java.util.List;
 abstract class StationsListFragment extends ListFragment
         implements AbsListView.OnScrollListener,
         SwipeRefreshLayout.OnRefreshListener,
-        StationUpdateDelegate {
+        StationUpdateDelegate,
+        AvailabilityStream.Subscriber {
 
     private static final String TAG = StationsListFragment.class.getName();
 
@@ -65,11 +73,25 @@ abstract class StationsListFragment extends ListFragment
 
     private SwipeRefreshLayout swipeLayout;
 
+    /**
+     * The policy selecting the stations to refresh around the visible rows.
+     */
+    private RefreshWindow refreshWindow;
+
+    /**
+     * The subscription to the visible stations availability.
+     */
+    private AvailabilityStream.Subscription subscription;
+
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
         Log.d(TAG, "onCreate");
+        Resources resources = getResources();
+        refreshWindow = new RefreshWindow(
+                resources.getInteger(R.integer.list_refresh_margin_rows),
+                resources.getInteger(R.integer.list_refresh_freshness_seconds) * 1000L);
     }
 
     @Override
@@ -107,7 +129,7 @@ abstract class StationsListFragment extends ListFragment
 
     @Override
     public void onRefresh() {
-        updateVisibleItems();
+        updateVisibleItems(true);
     }
 
     @Override
@@ -134,10 +156,27 @@ abstract class StationsListFragment extends ListFragment
         adapter = new StationsAdapter(getActivity(), R.layout.station_list_item, stations);
         adapter.setReadOnly(isReadOnly());
         adapter.setStationUpdateDelegate(this);
+        adapter.setDistanceProvider(getDistanceProvider());
 
         return adapter;
     }
 
+    /**
+     * @return the distances to show in the rows, or null to hide them.
+     */
+    protected StationsAdapter.DistanceProvider getDistanceProvider() {
+        return null;
+    }
+
+    /**
+     * Notifies the adapter the stations order or values changed.
+     */
+    protected void notifyStationsChanged() {
+        if (adapter != null) {
+            adapter.notifyDataSetChanged();
+        }
+    }
+
     /**
      * Returns whether if the view allows to remove elements.
      *
@@ -210,6 +249,10 @@ abstract class StationsListFragment extends ListFragment
         super.onResume();
         Log.d(TAG, "onResume");
 
+        // Also called by the activity to refresh, while already subscribed.
+        if (subscription == null) {
+            subscription = AvailabilityStream.subscribe(Collections.<Long>emptySet(), this);
+        }
         updateVisibleItemsAsRunnable();
     }
 
@@ -218,6 +261,11 @@ abstract class StationsListFragment extends ListFragment
         super.onPause();
         Log.d(TAG, "onPause");
         cancelAsyncTask();
+
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
     }
 
     @Override
@@ -247,36 +295,106 @@ abstract class StationsListFragment extends ListFragment
     }
 
     /**
-     * Update visible stations.
+     * Update visible stations and the ones around, if they are not fresh.
      */
     public void updateVisibleItems() {
+        updateVisibleItems(false);
+    }
+
+    /**
+     * Update visible stations and the ones around.
+     *
+     * @param force <code>true</code> to refresh the stations even if they are fresh.
+     */
+    public void updateVisibleItems(boolean force) {
         if (!ContextHelper.isNetworkAvailable(getActivity())) {
             setProgressIndeterminateVisibility(false);
         } else {
-            doUpdateVisibleItems();
+            doUpdateVisibleItems(force);
         }
     }
 
-    private void doUpdateVisibleItems() {
+    private void doUpdateVisibleItems(boolean force) {
         int lastVisibleRowPosition = getLastVisiblePosition();
         Log.d(TAG, "Index of last visible row = " + lastVisibleRowPosition);
 
         if (lastVisibleRowPosition > 0) {
             int firstVisiblePosition = getFirstVisiblePosition();
+            subscribeTo(filterStationsToRefresh(stations.subList(firstVisiblePosition, lastVisibleRowPosition)));
+
+            List<Station> freshStations = new ArrayList<>();
+            List<Station> subStations = filterStationsToRefresh(
+                    refreshWindow.select(stations, firstVisiblePosition, lastVisibleRowPosition, force, freshStations));
+
+            // Fetched recently, maybe by another screen, while this one was not subscribed to them.
+            if (!freshStations.isEmpty()) {
+                StationRepository.applyCachedValues(freshStations);
+                notifyStationsChanged();
+            }
             Log.d(TAG, String.format(
-                    "Update only visible stations from %d to %d for a list of %d elements",
+                    "Update %d stations around the visible ones from %d to %d for a list of %d elements",
+                    subStations.size(),
                     firstVisiblePosition,
                     lastVisibleRowPosition,
                     stations.size())
             );
 
-            List<Station> subStations = stations.subList(firstVisiblePosition, lastVisibleRowPosition);
+            if (subStations.isEmpty()) {
+                setProgressIndeterminateVisibility(false);
+
+                return;
+            }
 
             asyncTask = getNewAsyncTask();
+            asyncTask.setForceFetch(force);
             asyncTask.execute(subStations);
         }
     }
 
+    private void subscribeTo(List<Station> visibleStations) {
+        if (subscription == null) {
+            return;
+        }
+
+        Set<Long> stationIds = new HashSet<>();
+        for (Station station : visibleStations) {
+            stationIds.add(station.id);
+        }
+        subscription.setStationIds(stationIds);
+    }
+
+    /**
+     * Shows the availability pushed by the stream for the visible stations.
+     */
+    @Override
+    public void onAvailabilities(List<Station> pushedStations) {
+        if (stations == null || getView() == null) {
+            return;
+        }
+
+        Set<Long> stationIds = new HashSet<>();
+        for (Station pushedStation : pushedStations) {
+            stationIds.add(pushedStation.id);
+        }
+
+        List<Station> updatedStations = new ArrayList<>();
+        for (Station station : stations) {
+            if (stationIds.contains(station.id)) {
+                updatedStations.add(station);
+            }
+        }
+
+        StationRepository.applyCachedValues(updatedStations);
+        notifyStationsChanged();
+    }
+
+    /**
+     * Restricts the stations selected around the visible rows before they are refreshed.
+     */
+    protected List<Station> filterStationsToRefresh(List<Station> stations) {
+        return stations;
+    }
+
     private int getLastVisiblePosition() {
         if (stations.isEmpty()) {
             return 0;
@@ -292,13 +410,8 @@ abstract class StationsListFragment extends ListFragment
     }
 
     private int getFirstVisiblePosition() {
-        int firstVisibleRow = getListView().getFirstVisiblePosition();
-        if (firstVisibleRow > 1 && stations.size() > 1) {
-            // -1 to load the almost visible row above the first visible.
-            return firstVisibleRow - 1;
-        }
-
-        return firstVisibleRow;
+        // The rows above the first visible are handled by the refresh window margin.
+        return Math.min(getListView().getFirstVisiblePosition(), stations.size());
     }
 
     /**
@@ -306,7 +419,7 @@ abstract class StationsListFragment extends ListFragment
      */
     private StationsAsyncTask getNewAsyncTask() {
         cancelAsyncTask();
-        asyncTask = new StationsAsyncTask(this);
+        asyncTask = new StationsAsyncTask();
 
         return asyncTask;
     }
@@ -327,6 +440,8 @@ abstract class StationsListFragment extends ListFragment
     public void setStations(List<Station> stations) {
         Log.d(TAG, String.format("Set %d stations", stations.size()));
 
+        // Shows the last known counts until the visible stations are fetched.
+        StationRepository.applyCachedValues(stations);
         this.stations = stations;
     }
 
@@ -344,8 +459,8 @@ abstract class StationsListFragment extends ListFragment
      */
     class StationsAsyncTask extends AbstractStationsAsyncTask {
 
-        StationsAsyncTask(StationUpdateDelegate delegate) {
-            super(getHomeActivity(), delegate);
+        StationsAsyncTask() {
+            super(getHomeActivity());
         }
 
         @Override
@@ -8,6 +8,7 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.*;
 import com.vlille.checker.R;
+import com.vlille.checker.history.AvailabilityPredictor;
 import com.vlille.checker.model.Station;
 import com.vlille.checker.ui.delegate.StationUpdateDelegate;
 import com.vlille.checker.utils.ContextHelper;
@@ -22,9 +23,21 @@ import java.util.List;
  */
 public class StationsAdapter extends ArrayAdapter<Station> {
 
+    /**
+     * Gives the distance to the station of a row.
+     */
+    public interface DistanceProvider {
+
+        /**
+         * @return the distance in meters, or a negative value when unknown.
+         */
+        double getDistance(int position);
+    }
+
     private static final String TAG = StationsAdapter.class.getSimpleName();
 
     private StationUpdateDelegate stationUpdateDelegate;
+    private DistanceProvider distanceProvider;
     private List<Station> stations;
     private Resources resources;
     private boolean readOnly = false;
@@ -64,6 +77,7 @@ public class StationsAdapter extends ArrayAdapter<Station> {
 
             handleStarCheckbox(view, position, station);
             handleStationsTextInfos(view, station, stationPreferences);
+            handleDistance(view, position);
 
             ViewUtils.switchView(view.findViewById(R.id.station_lastupdate), stationPreferences.isUpdatedAtVisible());
         }
@@ -108,6 +122,13 @@ public class StationsAdapter extends ArrayAdapter<Station> {
         TextView address = (TextView) view.findViewById(R.id.station_adress);
         address.setText(station.getAdressToUpperCase());
 
+        TextView prediction = (TextView) view.findViewById(R.id.station_prediction);
+        String predictionText = station.isStarred()
+                ? AvailabilityPredictor.getPredictionAsString(resources, station, false)
+                : null;
+        prediction.setText(predictionText);
+        ViewUtils.switchView(prediction, predictionText != null);
+
         TextView nbBikes = (TextView) view.findViewById(R.id.details_bikes);
         nbBikes.setText(station.getBikesAsString());
         nbBikes.setTextColor(getColor(station.getBikes()));
@@ -121,6 +142,17 @@ public class StationsAdapter extends ArrayAdapter<Station> {
         ViewUtils.switchView(view.findViewById(R.id.details_express), station.isExpress());
     }
 
+    private void handleDistance(View view, int position) {
+        TextView distance = (TextView) view.findViewById(R.id.station_distance);
+        double meters = distanceProvider == null ? -1 : distanceProvider.getDistance(position);
+        if (meters >= 0) {
+            distance.setText(meters < 1000
+                    ? resources.getString(R.string.distance_meters, Math.round(meters))
+                    : resources.getString(R.string.distance_kilometers, meters / 1000));
+        }
+        ViewUtils.switchView(distance, meters >= 0);
+    }
+
     private int getColor(int number) {
         return ColorSelector.getColor(getContext(), number);
     }
@@ -137,6 +169,10 @@ public class StationsAdapter extends ArrayAdapter<Station> {
         this.stationUpdateDelegate = stationUpdateDelegate;
     }
 
+    public void setDistanceProvider(DistanceProvider distanceProvider) {
+        this.distanceProvider = distanceProvider;
+    }
+
     public void setReadOnly(boolean readOnly) {
         this.readOnly = readOnly;
     }
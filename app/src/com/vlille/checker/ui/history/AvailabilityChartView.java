@@ -0,0 +1,129 @@
+package com.vlille.checker.ui.history;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.support.v4.content.ContextCompat;
+import android.util.AttributeSet;
+import android.view.View;
+
+import com.vlille.checker.R;
+import com.vlille.checker.history.AvailabilitySeries;
+
+/**
+ * Draws the bikes and attachs counts of a station over a time range, as step lines.
+ */
+public class AvailabilityChartView extends View {
+
+    private static final int HOURS_BY_GRID_LINE = 6;
+    private static final long ONE_HOUR_IN_MILLIS = 60 * 60 * 1000;
+
+    private final Paint bikesPaint;
+    private final Paint attachsPaint;
+    private final Paint gridPaint;
+    private final Paint textPaint;
+    private final Path path = new Path();
+
+    private AvailabilitySeries series;
+    private long from;
+    private long to;
+
+    public AvailabilityChartView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+
+        Resources resources = getResources();
+        float lineWidth = resources.getDimension(R.dimen.station_history_line_width);
+
+        bikesPaint = newLinePaint(ContextCompat.getColor(context, R.color.primary), lineWidth);
+        attachsPaint = newLinePaint(ContextCompat.getColor(context, R.color.activated), lineWidth);
+        gridPaint = newLinePaint(ContextCompat.getColor(context, R.color.grey), 1);
+
+        textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setColor(ContextCompat.getColor(context, android.R.color.darker_gray));
+        textPaint.setTextSize(resources.getDimension(R.dimen.station_history_text_size));
+        textPaint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    private static Paint newLinePaint(int color, float width) {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(color);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(width);
+
+        return paint;
+    }
+
+    public void setSeries(AvailabilitySeries series, long from, long to) {
+        this.series = series;
+        this.from = from;
+        this.to = to;
+
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        float width = getWidth() - getPaddingLeft() - getPaddingRight();
+        float height = getHeight() - getPaddingTop() - getPaddingBottom();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
+
+        if (series == null || series.isEmpty() || to <= from) {
+            canvas.drawText(getResources().getString(R.string.station_history_empty),
+                    width / 2, height / 2, textPaint);
+        } else {
+            drawGrid(canvas, width, height);
+
+            float maxY = Math.max(1, series.getMaxTotal());
+            drawSteps(canvas, width, height, maxY, true);
+            drawSteps(canvas, width, height, maxY, false);
+        }
+
+        canvas.restore();
+    }
+
+    private void drawGrid(Canvas canvas, float width, float height) {
+        canvas.drawLine(0, height, width, height, gridPaint);
+
+        long step = HOURS_BY_GRID_LINE * ONE_HOUR_IN_MILLIS;
+        for (long time = to - step; time > from; time -= step) {
+            float x = getX(time, width);
+            canvas.drawLine(x, 0, x, height, gridPaint);
+        }
+    }
+
+    private void drawSteps(Canvas canvas, float width, float height, float maxY, boolean bikes) {
+        path.reset();
+
+        float previousY = 0;
+        for (int i = 0; i < series.size(); i++) {
+            float x = getX(series.getTime(i), width);
+            int value = bikes ? series.getBikes(i) : series.getAttachs(i);
+            float y = height - value / maxY * height;
+
+            if (i == 0) {
+                path.moveTo(x, y);
+            } else {
+                path.lineTo(x, previousY);
+                path.lineTo(x, y);
+            }
+            previousY = y;
+        }
+        path.lineTo(width, previousY);
+
+        canvas.drawPath(path, bikes ? bikesPaint : attachsPaint);
+    }
+
+    private float getX(long time, float width) {
+        return (float) (time - from) / (to - from) * width;
+    }
+
+}
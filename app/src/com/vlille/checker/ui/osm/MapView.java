@@ -4,19 +4,22 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Canvas;
 import android.location.Location;
-import android.location.LocationListener;
-import android.location.LocationManager;
-import android.os.Bundle;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.MotionEvent;
 
 import com.vlille.checker.R;
+import com.vlille.checker.dataset.StationRepository;
+import com.vlille.checker.dataset.StationsAvailability;
+import com.vlille.checker.dataset.stream.AvailabilityStream;
+import com.vlille.checker.geo.NearestStationsTracker;
+import com.vlille.checker.geo.Neighbor;
+import com.vlille.checker.geo.StationGridIndex;
 import com.vlille.checker.model.Station;
 import com.vlille.checker.ui.HomeActivity;
 import com.vlille.checker.ui.async.AbstractStationsAsyncTask;
 import com.vlille.checker.ui.delegate.StationUpdateDelegate;
-import com.vlille.checker.ui.osm.location.LocationManagerWrapper;
+import com.vlille.checker.ui.osm.location.LocationUpdates;
 import com.vlille.checker.ui.osm.overlay.CircleLocationOverlay;
 import com.vlille.checker.ui.osm.overlay.ItemizedOverlayWithFocus;
 import com.vlille.checker.ui.osm.overlay.MaskableOverlayItem;
@@ -31,12 +34,16 @@ import org.osmdroid.util.GeoPoint;
 import org.osmdroid.views.overlay.ItemizedIconOverlay;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * @see <a href="http://stackoverflow.com/questions/4729255/how-to-implemennt-onzoomlistener-on-mapview">Implement onZoomListener on MapView</a>
  */
-public class MapView extends org.osmdroid.views.MapView implements LocationListener {
+public class MapView extends org.osmdroid.views.MapView implements LocationUpdates.Listener,
+        AvailabilityStream.Subscriber {
 
     /**
      * The default zoom level.
@@ -67,8 +74,21 @@ public class MapView extends org.osmdroid.views.MapView implements LocationListe
      */
     private static final int OVERLAYS_STATIONS_INDEX = 1;
 
+    /**
+     * The nearest stations around the location are fetched and drawn by batches of this size.
+     */
+    private static final int AROUND_LOCATION_BATCH_SIZE = 4;
+
+    /**
+     * The nearest stations with at least one bike, ringed around the location.
+     */
+    private static final int NEAREST_STATIONS_COUNT = 3;
+    private static final int NEAREST_STATIONS_MIN_BIKES = 1;
+
     private MapState state;
     private List<Station> stations;
+    private StationGridIndex stationIndex;
+    private NearestStationsTracker nearestStationsTracker;
 
     private HomeActivity homeActivity;
     private StationUpdateDelegate stationUpdateDelegate;
@@ -83,6 +103,20 @@ public class MapView extends org.osmdroid.views.MapView implements LocationListe
 
     private List<MaskableOverlayItem> maskableOverlayItems = null;
 
+    /**
+     * The subscription to the availability of the stations being shown.
+     */
+    private AvailabilityStream.Subscription subscription;
+
+    /**
+     * The stations shown in the bounding box, and the ones around the location being refreshed,
+     * both subscribed.
+     */
+    private Set<Long> visibleStationIds = Collections.emptySet();
+    private Set<Long> aroundLocationStationIds = Collections.emptySet();
+
+    private AsyncMapStationRetriever asyncTask;
+
     public MapView(final Context context, AttributeSet attrs) {
         super(context, attrs);
         Log.d(TAG, "MapView");
@@ -91,6 +125,8 @@ public class MapView extends org.osmdroid.views.MapView implements LocationListe
     public void setMapInfos(MapState state, List<Station> stations) {
         this.state = state;
         this.stations = stations;
+        this.stationIndex = null;
+        this.nearestStationsTracker = null;
     }
 
     public void init() {
@@ -100,6 +136,9 @@ public class MapView extends org.osmdroid.views.MapView implements LocationListe
         initIconizedOverlay();
 
         setOnPanZoomListener();
+        if (subscription == null) {
+            subscription = AvailabilityStream.subscribe(Collections.<Long>emptySet(), this);
+        }
         updateStations();
         invalidate();
     }
@@ -140,8 +179,10 @@ public class MapView extends org.osmdroid.views.MapView implements LocationListe
         this.locationOn = !locationOn;
         Log.d(TAG, "Location on: " + locationOn);
         if (locationOn) {
-            requestLocationUpdates();
-            drawLocationCircle();
+            if (LocationUpdates.getLastLocation(getContext()) == null) {
+                homeActivity.showSnackBarMessage(R.string.error_no_location_found);
+            }
+            LocationUpdates.subscribe(getContext(), this);
         } else {
             reinitDefaultCenter();
             updateStations();
@@ -149,43 +190,20 @@ public class MapView extends org.osmdroid.views.MapView implements LocationListe
 
     }
 
-    private void requestLocationUpdates() {
-        final LocationManager locationManager = getLocationManager();
-        final List<String> providers = locationManager.getProviders(false);
-        for (String eachProviderName : providers) {
-            Log.d(TAG, "Provider enabled " + eachProviderName);
-
-            locationManager.requestLocationUpdates(eachProviderName,
-                    LocationManagerWrapper.DISTANCE_UPDATE_IN_METERS,
-                    LocationManagerWrapper.DURATION_UPDATE_IN_MILLIS,
-                    this);
-        }
-    }
-
     private void reinitDefaultCenter() {
         getController().setCenter(state.currentCenter);
-        getLocationManager().removeUpdates(this);
+        LocationUpdates.unsubscribe(this);
         circleOverlay.setGeoPosition(null);
+        // The radius may have changed in the preferences until the next location.
+        nearestStationsTracker = null;
     }
 
-    private LocationManager getLocationManager() {
-        return (LocationManager) homeActivity.getSystemService(Context.LOCATION_SERVICE);
-    }
-
-    private void drawLocationCircle() {
-        Log.d(TAG, "drawLocationCircle");
-        if (locationOn) {
-            if (LocationManagerWrapper.with(getContext()).hasCurrentLocation()) {
-                Location currentLocation = LocationManagerWrapper.with(getContext()).getCurrentLocation();
-                Log.d(TAG, "Current location [lat=" + currentLocation.getLatitude() + ",long=" + currentLocation.getLongitude() + "]");
-                final GeoPoint geoPoint = new GeoPoint(currentLocation);
-                getController().setCenter(geoPoint);
-                circleOverlay.setGeoPosition(geoPoint);
-                updateStations();
-            } else {
-                homeActivity.showSnackBarMessage(R.string.error_no_location_found);
-            }
-        }
+    private void drawLocationCircle(Location location) {
+        Log.d(TAG, "Current location [lat=" + location.getLatitude() + ",long=" + location.getLongitude() + "]");
+        final GeoPoint geoPoint = new GeoPoint(location);
+        getController().setCenter(geoPoint);
+        circleOverlay.setGeoPosition(geoPoint);
+        updateStationsAroundLocation(location);
     }
 
     private void initCircleOverlay() {
@@ -196,22 +214,21 @@ public class MapView extends org.osmdroid.views.MapView implements LocationListe
     @Override
     public void onLocationChanged(Location location) {
         Log.d(TAG, "onLocationChanged");
-        drawLocationCircle();
-    }
-
-    @Override
-    public void onProviderDisabled(String provider) {
-        Log.d(TAG, "onProviderDisabled");
+        if (locationOn) {
+            drawLocationCircle(location);
+        }
     }
 
     @Override
-    public void onProviderEnabled(String provider) {
-        Log.d(TAG, "onProviderEnabled");
-    }
+    protected void onDetachedFromWindow() {
+        LocationUpdates.unsubscribe(this);
+        cancelAsyncTask();
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
 
-    @Override
-    public void onStatusChanged(String provider, int status, Bundle extras) {
-        Log.d(TAG, "onStatusChanged");
+        super.onDetachedFromWindow();
     }
 
     //=========
@@ -308,6 +325,10 @@ public class MapView extends org.osmdroid.views.MapView implements LocationListe
             }
         }
 
+        visibleStationIds = getIds(stations);
+        aroundLocationStationIds = Collections.emptySet();
+        updateSubscription();
+
         if (ContextHelper.isNetworkAvailable(getContext())) {
             if (stations.isEmpty()) {
                 itemUpdater.whenNoneStationToDraw();
@@ -318,13 +339,149 @@ public class MapView extends org.osmdroid.views.MapView implements LocationListe
                 if (OverlayZoomUtils.isDetailledZoomLevel(getZoomLevel())) {
                     Log.d(TAG, String.format("%d stations to update!", stations.size()));
 
-                    AsyncMapStationRetriever asyncTask = new AsyncMapStationRetriever(stationUpdateDelegate);
-                    asyncTask.execute(stations);
+                    getNewAsyncTask().execute(stations);
                 }
             }
         }
     }
 
+    /**
+     * Updates only the stations within the preferences radius, the nearest first.
+     */
+    private void updateStationsAroundLocation(Location location) {
+        itemizedOverlay.hideBubble();
+
+        if (stations == null
+                || !OverlayZoomUtils.isDetailledZoomLevel(getZoomLevel())
+                || !ContextHelper.isNetworkAvailable(getContext())) {
+            invalidate();
+
+            return;
+        }
+
+        if (stationIndex == null) {
+            stationIndex = new StationGridIndex(stations);
+        }
+        if (nearestStationsTracker == null) {
+            nearestStationsTracker = new NearestStationsTracker(stationIndex,
+                    new StationsAvailability(stations),
+                    NearestStationsTracker.Criteria.BIKES, NEAREST_STATIONS_MIN_BIKES, NEAREST_STATIONS_COUNT,
+                    ContextHelper.getRadiusValue(getContext()));
+        }
+        if (nearestStationsTracker.onLocationChanged(location.getLatitude(), location.getLongitude())) {
+            updateNearestStations();
+        }
+
+        List<Neighbor> neighbors = stationIndex.withinRadius(location.getLatitude(), location.getLongitude(),
+                ContextHelper.getRadiusValue(getContext()),
+                StationGridIndex.Filter.ALL);
+        List<Station> nearestStations = new ArrayList<>(neighbors.size());
+        for (Neighbor neighbor : neighbors) {
+            nearestStations.add(stations.get(neighbor.getIndex()));
+        }
+        Log.d(TAG, String.format("%d stations to update around the location", nearestStations.size()));
+        // The visible stations stay subscribed.
+        aroundLocationStationIds = getIds(nearestStations);
+        updateSubscription();
+
+        if (nearestStations.isEmpty()) {
+            homeActivity.showSnackBarMessage(R.string.error_no_stations_near_current_location);
+            invalidate();
+
+            return;
+        }
+
+        AsyncMapStationRetriever asyncTask = getNewAsyncTask();
+        asyncTask.setProgressiveBatchSize(AROUND_LOCATION_BATCH_SIZE);
+        asyncTask.execute(nearestStations);
+    }
+
+    /**
+     * Rings the nearest stations with bikes found by the tracker.
+     */
+    private void updateNearestStations() {
+        List<GeoPoint> geoPoints = new ArrayList<>();
+        for (Neighbor neighbor : nearestStationsTracker.getNearest()) {
+            geoPoints.add(stations.get(neighbor.getIndex()).getGeoPoint());
+        }
+        circleOverlay.setNearestGeoPoints(geoPoints);
+    }
+
+    private void updateSubscription() {
+        if (subscription == null) {
+            return;
+        }
+
+        Set<Long> stationIds = new HashSet<>(visibleStationIds);
+        stationIds.addAll(aroundLocationStationIds);
+        subscription.setStationIds(stationIds);
+    }
+
+    private static Set<Long> getIds(List<Station> stations) {
+        Set<Long> stationIds = new HashSet<>();
+        for (Station station : stations) {
+            stationIds.add(station.id);
+        }
+
+        return stationIds;
+    }
+
+    /**
+     * Cancels the maybe running async task, then creates a new one.
+     */
+    private AsyncMapStationRetriever getNewAsyncTask() {
+        cancelAsyncTask();
+        asyncTask = new AsyncMapStationRetriever();
+
+        return asyncTask;
+    }
+
+    private void cancelAsyncTask() {
+        if (asyncTask != null) {
+            asyncTask.cancel();
+        }
+    }
+
+    /**
+     * Redraws the stations whose availability is pushed by the stream.
+     */
+    @Override
+    public void onAvailabilities(List<Station> pushedStations) {
+        if (stations == null) {
+            return;
+        }
+
+        Set<Long> stationIds = new HashSet<>();
+        for (Station pushedStation : pushedStations) {
+            stationIds.add(pushedStation.id);
+        }
+
+        List<Station> updatedStations = new ArrayList<>();
+        List<Integer> updatedIndexes = new ArrayList<>();
+        for (int i = 0; i < stations.size(); i++) {
+            Station station = stations.get(i);
+            if (stationIds.contains(station.id)) {
+                updatedStations.add(station);
+                updatedIndexes.add(i);
+            }
+        }
+
+        StationRepository.applyCachedValues(updatedStations);
+
+        if (nearestStationsTracker != null && locationOn) {
+            boolean nearestChanged = false;
+            for (int i = 0; i < updatedStations.size(); i++) {
+                nearestChanged |= nearestStationsTracker.onAvailabilityChanged(updatedStations.get(i).id,
+                        updatedIndexes.get(i));
+            }
+            if (nearestChanged) {
+                updateNearestStations();
+            }
+        }
+
+        invalidate();
+    }
+
     private ItemActionUpdater getItemUpdater() {
         return getDefaultItemUpdater();
     }
@@ -365,8 +522,8 @@ public class MapView extends org.osmdroid.views.MapView implements LocationListe
 
     class AsyncMapStationRetriever extends AbstractStationsAsyncTask {
 
-        AsyncMapStationRetriever(StationUpdateDelegate delegate) {
-            super(homeActivity, delegate);
+        AsyncMapStationRetriever() {
+            super(homeActivity);
         }
 
         @Override
@@ -375,12 +532,30 @@ public class MapView extends org.osmdroid.views.MapView implements LocationListe
             homeActivity.setRefreshActionButtonState(true);
         }
 
+        @Override
+        protected void onProgressUpdate(Void... values) {
+            super.onProgressUpdate(values);
+            invalidate();
+        }
+
         @Override
         protected void onPostExecute(List<Station> result) {
             super.onPostExecute(result);
             homeActivity.setRefreshActionButtonState(false);
+            if (nearestStationsTracker != null && locationOn) {
+                nearestStationsTracker.onAvailabilitiesChanged();
+                updateNearestStations();
+            }
             invalidate();
         }
+
+        public void cancel() {
+            if (getStatus() == Status.RUNNING) {
+                Log.d(TAG, "Cancel the async task");
+                cancel(false);
+                homeActivity.setRefreshActionButtonState(false);
+            }
+        }
     }
 
     //=====================
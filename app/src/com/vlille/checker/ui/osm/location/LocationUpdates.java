@@ -0,0 +1,216 @@
+package com.vlille.checker.ui.osm.location;
+
+import android.content.Context;
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
+import android.os.Bundle;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single location stream shared by the map, the nearby stations and the radius overlay.
+ *
+ * The GPS and network providers are fused: a fix only replaces the current one if it is newer
+ * and not much less accurate. The listeners are only notified after a meaningful movement, and
+ * the providers are only registered while at least one listener is subscribed.
+ *
+ * Must be used from the main thread.
+ */
+public final class LocationUpdates {
+
+    /**
+     * Receives the fused and throttled fixes.
+     */
+    public interface Listener {
+
+        void onLocationChanged(Location location);
+    }
+
+    private static final String TAG = LocationUpdates.class.getSimpleName();
+
+    private static final String[] PROVIDERS = {
+            LocationManager.GPS_PROVIDER,
+            LocationManager.NETWORK_PROVIDER
+    };
+
+    private static final long PROVIDER_MIN_TIME_IN_MILLIS = 5000;
+    private static final float PROVIDER_MIN_DISTANCE_IN_METERS = 10;
+
+    /**
+     * The movement notifying the listeners.
+     */
+    private static final float MIN_MOVEMENT_IN_METERS = 25;
+
+    /**
+     * A fix older than this one is significantly older, and a last known location older is ignored.
+     */
+    private static final long MAX_AGE_IN_MILLIS = 2 * 60 * 1000;
+
+    /**
+     * A fix less accurate than the current one by this value is ignored.
+     */
+    private static final float MAX_ACCURACY_LOSS_IN_METERS = 200;
+
+    private static final List<Listener> LISTENERS = new ArrayList<>();
+
+    private static final LocationListener PROVIDERS_LISTENER = new LocationListener() {
+        @Override
+        public void onLocationChanged(Location location) {
+            onFix(location);
+        }
+
+        @Override
+        public void onStatusChanged(String provider, int status, Bundle extras) {
+        }
+
+        @Override
+        public void onProviderEnabled(String provider) {
+        }
+
+        @Override
+        public void onProviderDisabled(String provider) {
+        }
+    };
+
+    private static LocationManager locationManager;
+
+    /**
+     * The best fused fix.
+     */
+    private static Location current;
+
+    /**
+     * The last fix sent to the listeners.
+     */
+    private static Location delivered;
+
+    private LocationUpdates() {}
+
+    /**
+     * Subscribes to the location updates, and receives the last location right away if known.
+     */
+    public static void subscribe(Context context, Listener listener) {
+        if (LISTENERS.contains(listener)) {
+            return;
+        }
+
+        LISTENERS.add(listener);
+        if (LISTENERS.size() == 1) {
+            requestProvidersUpdates(context);
+        }
+
+        Location location = getLastLocation(context);
+        if (location != null) {
+            listener.onLocationChanged(location);
+        }
+    }
+
+    public static void unsubscribe(Listener listener) {
+        if (LISTENERS.remove(listener) && LISTENERS.isEmpty() && locationManager != null) {
+            Log.d(TAG, "Remove the providers updates");
+            locationManager.removeUpdates(PROVIDERS_LISTENER);
+        }
+    }
+
+    /**
+     * @return the best known location, or null.
+     */
+    public static Location getLastLocation(Context context) {
+        if (current == null || System.currentTimeMillis() - current.getTime() > MAX_AGE_IN_MILLIS) {
+            seedFromLastKnownLocations(context);
+        }
+
+        return current;
+    }
+
+    private static void requestProvidersUpdates(Context context) {
+        LocationManager manager = getLocationManager(context);
+        for (String provider : PROVIDERS) {
+            try {
+                if (manager.isProviderEnabled(provider)) {
+                    Log.d(TAG, "Request the updates of " + provider);
+                    manager.requestLocationUpdates(provider,
+                            PROVIDER_MIN_TIME_IN_MILLIS,
+                            PROVIDER_MIN_DISTANCE_IN_METERS,
+                            PROVIDERS_LISTENER);
+                }
+            } catch (SecurityException | IllegalArgumentException e) {
+                Log.e(TAG, "Unable to request the updates of " + provider, e);
+            }
+        }
+    }
+
+    /**
+     * Scans the last known locations, when no recent fix was received.
+     */
+    private static void seedFromLastKnownLocations(Context context) {
+        LocationManager manager = getLocationManager(context);
+        long now = System.currentTimeMillis();
+        for (String provider : PROVIDERS) {
+            try {
+                Location location = manager.getLastKnownLocation(provider);
+                if (location != null && now - location.getTime() < MAX_AGE_IN_MILLIS && isBetter(location)) {
+                    current = location;
+                }
+            } catch (SecurityException | IllegalArgumentException e) {
+                Log.e(TAG, "Unable to get the last location of " + provider, e);
+            }
+        }
+    }
+
+    private static void onFix(Location location) {
+        if (!isBetter(location)) {
+            return;
+        }
+        current = location;
+
+        if (delivered != null && delivered.distanceTo(location) < MIN_MOVEMENT_IN_METERS) {
+            return;
+        }
+        delivered = location;
+
+        for (Listener listener : new ArrayList<>(LISTENERS)) {
+            listener.onLocationChanged(location);
+        }
+    }
+
+    /**
+     * @see <a href="https://developer.android.com/guide/topics/location/strategies.html">Location strategies</a>
+     */
+    private static boolean isBetter(Location location) {
+        if (current == null) {
+            return true;
+        }
+
+        long timeDelta = location.getTime() - current.getTime();
+        if (timeDelta > MAX_AGE_IN_MILLIS) {
+            return true;
+        }
+        if (timeDelta < -MAX_AGE_IN_MILLIS) {
+            return false;
+        }
+
+        float accuracyDelta = location.getAccuracy() - current.getAccuracy();
+        if (accuracyDelta < 0) {
+            return true;
+        }
+        if (timeDelta <= 0) {
+            return false;
+        }
+
+        return accuracyDelta == 0
+                || (accuracyDelta <= MAX_ACCURACY_LOSS_IN_METERS && location.getProvider().equals(current.getProvider()));
+    }
+
+    private static LocationManager getLocationManager(Context context) {
+        if (locationManager == null) {
+            locationManager = (LocationManager) context.getApplicationContext().getSystemService(Context.LOCATION_SERVICE);
+        }
+
+        return locationManager;
+    }
+
+}
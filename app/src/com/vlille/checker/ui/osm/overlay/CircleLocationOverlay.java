@@ -10,24 +10,53 @@ import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Point;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.vlille.checker.R;
 import com.vlille.checker.ui.osm.PositionTransformer;
 import com.vlille.checker.utils.ContextHelper;
 
+/**
+ * Draws the preferences radius around the location, and rings the nearest stations with bikes.
+ */
 public class CircleLocationOverlay extends SimpleLocationOverlay {
 
+    private static final float NEAREST_RING_RADIUS_IN_DP = 22;
+    private static final float NEAREST_RING_WIDTH_IN_DP = 3;
+
     private static final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint nearestPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float nearestRingRadius;
+
     private GeoPoint geoPosition;
+    private List<GeoPoint> nearestGeoPoints = new ArrayList<>(0);
 
     public CircleLocationOverlay(Context context) {
         super(context);
 
         paint.setColor(context.getResources().getColor(R.color.mapview_location_circle));
         paint.setAlpha(125);
+
+        float density = context.getResources().getDisplayMetrics().density;
+        nearestRingRadius = NEAREST_RING_RADIUS_IN_DP * density;
+        nearestPaint.setColor(context.getResources().getColor(R.color.mapview_nearest_station));
+        nearestPaint.setStyle(Paint.Style.STROKE);
+        nearestPaint.setStrokeWidth(NEAREST_RING_WIDTH_IN_DP * density);
     }
 
     public void setGeoPosition(GeoPoint geoPoint) {
         this.geoPosition = geoPoint;
+        if (geoPoint == null) {
+            nearestGeoPoints = new ArrayList<>(0);
+        }
+    }
+
+    /**
+     * @param geoPoints the nearest stations to ring, drawn while the location is known.
+     */
+    public void setNearestGeoPoints(List<GeoPoint> geoPoints) {
+        this.nearestGeoPoints = geoPoints;
     }
 
     @Override
@@ -43,6 +72,12 @@ public class CircleLocationOverlay extends SimpleLocationOverlay {
         mapView.getProjection().toPixels(geoPosition, mapCenterPoint);
 
         canvas.drawCircle(mapCenterPoint.x, mapCenterPoint.y, radiusInMeters, this.paint);
+
+        Point stationPoint = new Point();
+        for (GeoPoint nearestGeoPoint : nearestGeoPoints) {
+            mapView.getProjection().toPixels(nearestGeoPoint, stationPoint);
+            canvas.drawCircle(stationPoint.x, stationPoint.y, nearestRingRadius, nearestPaint);
+        }
     }
 
     private float metersToRadius(long meters, MapView mapView, IGeoPoint mapCenter) {
@@ -6,6 +6,7 @@ import android.widget.CheckBox;
 import android.widget.TextView;
 
 import com.vlille.checker.R;
+import com.vlille.checker.history.AvailabilityPredictor;
 import com.vlille.checker.model.Station;
 import com.vlille.checker.ui.HomeActivity;
 import com.vlille.checker.ui.async.AbstractStationsAsyncTask;
@@ -89,7 +90,7 @@ public class BubbleInfoWindow extends DefaultInfoWindow {
             // Bind station with old values before async refresh.
             bindStation(station);
 
-            SingleStationAsyncTask asyncTask = new SingleStationAsyncTask(stationUpdateDelegate);
+            SingleStationAsyncTask asyncTask = new SingleStationAsyncTask();
             asyncTask.execute(Arrays.asList(station));
         }
     }
@@ -97,6 +98,13 @@ public class BubbleInfoWindow extends DefaultInfoWindow {
     private void bindStation(Station station) {
         updateTextView(stationBikes, station.getBikesAsString(), ColorSelector.getColorForMap(homeActivity, station.getBikes()));
         updateTextView(stationAttachs, station.getAttachsAsString(), ColorSelector.getColorForMap(homeActivity, station.getAttachs()));
+
+        TextView prediction = (TextView) mView.findViewById(R.id.maps_bubble_prediction);
+        String predictionText = station.isStarred()
+                ? AvailabilityPredictor.getPredictionAsString(homeActivity.getResources(), station, false)
+                : null;
+        prediction.setText(predictionText);
+        ViewUtils.switchView(prediction, predictionText != null);
     }
 
     private void updateTextView(TextView textView, String text, int color) {
@@ -106,8 +114,8 @@ public class BubbleInfoWindow extends DefaultInfoWindow {
 
     class SingleStationAsyncTask extends AbstractStationsAsyncTask {
 
-        SingleStationAsyncTask(StationUpdateDelegate delegate) {
-            super(homeActivity, delegate);
+        SingleStationAsyncTask() {
+            super(homeActivity);
         }
 
         @Override
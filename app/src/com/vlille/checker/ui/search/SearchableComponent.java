@@ -2,7 +2,9 @@ package com.vlille.checker.ui.search;
 
 import android.app.Activity;
 import android.content.Context;
+import android.text.Editable;
 import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.View;
@@ -11,7 +13,6 @@ import android.widget.EditText;
 import android.widget.ImageButton;
 import com.vlille.checker.model.Station;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class SearchableComponent {
@@ -20,6 +21,18 @@ public class SearchableComponent {
 
     private ViewParent viewParent;
 
+    /**
+     * The index built from the view parent original stations.
+     */
+    private StationSearchIndex searchIndex;
+    private List<Station> indexedStations;
+
+    /**
+     * The last filtered keyword, to avoid filtering twice the same text.
+     */
+    private String lastKeyword = "";
+    private boolean lastFilterEmpty;
+
     public SearchableComponent(ViewParent viewParent) {
         if (viewParent == null) {
             throw new IllegalArgumentException("View parent can not be null!");
@@ -44,6 +57,21 @@ public class SearchableComponent {
 
     private void initSearchTextListener() {
         final EditText searchField = viewParent.getSearchField();
+        searchField.addTextChangedListener(new TextWatcher() {
+
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable editable) {
+                filterStationsByKeyword(editable.toString());
+            }
+        });
         searchField.setOnKeyListener(new View.OnKeyListener() {
 
             @Override
@@ -52,8 +80,9 @@ public class SearchableComponent {
                 if (hasPressedOk(keyCode, event)) {
                     hideInputMethodManager();
 
-                    final String keyword = searchField.getText().toString();
-                    filterStationsByKeyword(keyword);
+                    if (lastFilterEmpty) {
+                        viewParent.showNoResultMessage();
+                    }
                 }
 
                 return false;
@@ -73,49 +102,49 @@ public class SearchableComponent {
             @Override
             public void onClick(View v) {
                 Log.d(TAG, "Clear search editText");
-                EditText editText = viewParent.getSearchField();
-                String oldText = editText.getText().toString();
-                editText.setText(null);
 
-                // Only reload stations if there was something in the input.
-                if (!TextUtils.isEmpty(oldText)) {
-                    filterStationsByKeyword(null);
-                }
+                // The text watcher reloads the stations if there was something in the input.
+                viewParent.getSearchField().setText(null);
             }
         });
     }
 
-
+    /**
+     * Filters the stations as the user types.
+     */
     private void filterStationsByKeyword(final String keyword) {
+        if (TextUtils.equals(keyword, lastKeyword)) {
+            return;
+        }
+        lastKeyword = keyword;
         Log.d(TAG, "Text searched: " + keyword);
 
         final List<Station> filteredStations = filter(keyword);
-        if (!filteredStations.isEmpty()) {
-            viewParent.setStations(filteredStations);
-        } else {
-            viewParent.showNoResultMessage();
-        }
+        lastFilterEmpty = filteredStations.isEmpty();
 
+        viewParent.setStations(filteredStations);
         viewParent.afterFilterElements();
     }
 
     private List<Station> filter(String keyword) {
-        if (keyword == null || keyword.length() == 0) {
-            return viewParent.getOriginalStations();
-        }
+        return getSearchIndex().search(keyword);
+    }
 
-        String keywordAsLowerCase = keyword.toLowerCase();
+    /**
+     * Gets the search index, rebuilt only when the original stations list changes.
+     */
+    private StationSearchIndex getSearchIndex() {
+        List<Station> originalStations = viewParent.getOriginalStations();
+        if (searchIndex == null || indexedStations != originalStations) {
+            long start = System.currentTimeMillis();
 
-        List<Station> result = new ArrayList<Station>();
+            searchIndex = new StationSearchIndex(originalStations);
+            indexedStations = originalStations;
 
-        List<Station> stations = viewParent.getOriginalStations();
-        for (Station eachStation : stations) {
-            if (eachStation.getName().toLowerCase().contains(keywordAsLowerCase)) {
-                result.add(eachStation);
-            }
+            Log.d(TAG, "Search index built in " + (System.currentTimeMillis() - start) + " ms");
         }
 
-        return result;
+        return searchIndex;
     }
 
     public interface ViewParent {
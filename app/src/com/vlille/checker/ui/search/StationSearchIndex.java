@@ -0,0 +1,245 @@
+package com.vlille.checker.ui.search;
+
+import com.vlille.checker.model.Station;
+import com.vlille.checker.utils.TextFolding;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-memory search index over the stations names and addresses.
+ *
+ * The index is built once from the folded (lower case, without accents) names and addresses,
+ * and keeps a trigram posting list to narrow the candidates of a query. A query extending the
+ * previous one is only checked against the previous matches, so typing a keyword letter by letter
+ * stays cheap.
+ *
+ * Results are ranked: name prefix, then word prefix, then name substring, then address substring.
+ */
+public class StationSearchIndex {
+
+    private static final int RANK_NAME_PREFIX = 0;
+    private static final int RANK_WORD_PREFIX = 1;
+    private static final int RANK_NAME_CONTAINS = 2;
+    private static final int RANK_ADDRESS_CONTAINS = 3;
+    private static final int RANK_COUNT = 4;
+    private static final int NO_MATCH = -1;
+
+    private static final int TRIGRAM_LENGTH = 3;
+
+    /**
+     * Separates the name and the address in the indexed document, so no trigram spans both.
+     */
+    private static final char DOCUMENT_SEPARATOR = '\n';
+
+    private final List<Station> stations;
+
+    private final String[] nameKeys;
+    private final String[] displayKeys;
+    private final String[] addressKeys;
+
+    private final Map<Long, int[]> postings;
+
+    private final int[][] buckets;
+    private final int[] bucketSizes;
+
+    private String lastQuery;
+    private int[] lastMatches;
+    private int lastMatchesCount;
+
+    public StationSearchIndex(List<Station> stations) {
+        this.stations = stations;
+
+        int size = stations.size();
+        this.nameKeys = new String[size];
+        this.displayKeys = new String[size];
+        this.addressKeys = new String[size];
+        this.buckets = new int[RANK_COUNT][size];
+        this.bucketSizes = new int[RANK_COUNT];
+
+        for (int i = 0; i < size; i++) {
+            Station station = stations.get(i);
+
+            nameKeys[i] = station.getSearchKey();
+            displayKeys[i] = station.getId() + " " + nameKeys[i];
+            addressKeys[i] = TextFolding.fold(station.getAdress());
+        }
+
+        this.postings = buildPostings();
+    }
+
+    private Map<Long, int[]> buildPostings() {
+        Map<Long, IntList> lists = new HashMap<>();
+
+        for (int i = 0; i < displayKeys.length; i++) {
+            String document = displayKeys[i] + DOCUMENT_SEPARATOR + addressKeys[i];
+
+            for (int start = 0; start + TRIGRAM_LENGTH <= document.length(); start++) {
+                Long trigram = trigram(document, start);
+
+                IntList list = lists.get(trigram);
+                if (list == null) {
+                    list = new IntList();
+                    lists.put(trigram, list);
+                }
+                list.addDistinct(i);
+            }
+        }
+
+        Map<Long, int[]> result = new HashMap<>(lists.size());
+        for (Map.Entry<Long, IntList> entry : lists.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().toArray());
+        }
+
+        return result;
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32)
+                | ((long) text.charAt(start + 1) << 16)
+                | (long) text.charAt(start + 2);
+    }
+
+    /**
+     * Searches the stations matching a keyword.
+     *
+     * @param keyword the keyword, can be null.
+     * @return the ranked matching stations, or all the stations when the keyword is empty.
+     */
+    public List<Station> search(String keyword) {
+        String query = TextFolding.fold(keyword);
+        if (query.length() == 0) {
+            lastQuery = null;
+
+            return stations;
+        }
+
+        if (lastQuery != null && query.startsWith(lastQuery)) {
+            rank(query, lastMatches, lastMatchesCount);
+        } else if (query.length() >= TRIGRAM_LENGTH) {
+            int[] candidates = getNarrowestPostings(query);
+            rank(query, candidates, candidates.length);
+        } else {
+            rank(query, null, stations.size());
+        }
+
+        return collect(query);
+    }
+
+    private int[] getNarrowestPostings(String query) {
+        int[] narrowest = null;
+
+        for (int start = 0; start + TRIGRAM_LENGTH <= query.length(); start++) {
+            int[] candidates = postings.get(trigram(query, start));
+            if (candidates == null) {
+                return new int[0];
+            }
+            if (narrowest == null || candidates.length < narrowest.length) {
+                narrowest = candidates;
+            }
+        }
+
+        return narrowest;
+    }
+
+    /**
+     * Dispatches the candidates into the ranks buckets.
+     *
+     * @param candidates the candidates indexes, or null to check every station.
+     */
+    private void rank(String query, int[] candidates, int count) {
+        for (int rank = 0; rank < RANK_COUNT; rank++) {
+            bucketSizes[rank] = 0;
+        }
+
+        for (int i = 0; i < count; i++) {
+            int index = candidates == null ? i : candidates[i];
+
+            int rank = getRank(index, query);
+            if (rank != NO_MATCH) {
+                buckets[rank][bucketSizes[rank]++] = index;
+            }
+        }
+    }
+
+    private int getRank(int index, String query) {
+        if (nameKeys[index].startsWith(query) || displayKeys[index].startsWith(query)) {
+            return RANK_NAME_PREFIX;
+        }
+
+        String displayKey = displayKeys[index];
+        int position = displayKey.indexOf(query);
+        if (position != -1) {
+            while (position != -1) {
+                if (displayKey.charAt(position - 1) == ' ') {
+                    return RANK_WORD_PREFIX;
+                }
+                position = displayKey.indexOf(query, position + 1);
+            }
+
+            return RANK_NAME_CONTAINS;
+        }
+
+        if (addressKeys[index].contains(query)) {
+            return RANK_ADDRESS_CONTAINS;
+        }
+
+        return NO_MATCH;
+    }
+
+    private List<Station> collect(String query) {
+        int total = 0;
+        for (int rank = 0; rank < RANK_COUNT; rank++) {
+            total += bucketSizes[rank];
+        }
+
+        int[] matches = new int[total];
+        List<Station> result = new ArrayList<>(total);
+
+        int position = 0;
+        for (int rank = 0; rank < RANK_COUNT; rank++) {
+            int[] bucket = buckets[rank];
+            for (int i = 0; i < bucketSizes[rank]; i++) {
+                matches[position++] = bucket[i];
+                result.add(stations.get(bucket[i]));
+            }
+        }
+
+        lastQuery = query;
+        lastMatches = matches;
+        lastMatchesCount = total;
+
+        return result;
+    }
+
+    /**
+     * Minimal growable list of primitive ints, sorted by construction.
+     */
+    private static class IntList {
+
+        private int[] values = new int[4];
+        private int size;
+
+        void addDistinct(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(values, 0, grown, 0, size);
+                values = grown;
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            int[] result = new int[size];
+            System.arraycopy(values, 0, result, 0, size);
+
+            return result;
+        }
+    }
+
+}
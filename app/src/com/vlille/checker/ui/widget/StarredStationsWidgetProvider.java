@@ -0,0 +1,89 @@
+package com.vlille.checker.ui.widget;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.util.Log;
+import android.widget.RemoteViews;
+
+import com.vlille.checker.R;
+
+/**
+ * A widget listing all the starred stations.
+ *
+ * The list is filled by {@link StarredStationsWidgetService}, which fetches all the starred
+ * stations at once when the widget data changes.
+ */
+public class StarredStationsWidgetProvider extends AppWidgetProvider {
+
+    private static final String TAG = StarredStationsWidgetProvider.class.getSimpleName();
+
+    public static final String ACTION_REFRESH = "com.vlille.checker.widget.StarredProvider.action.REFRESH";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        super.onReceive(context, intent);
+
+        Log.d(TAG, "onReceive " + intent.getAction());
+        if (isSupportedAction(intent)) {
+            boolean userRequested = ACTION_REFRESH.equals(intent.getAction());
+            WidgetRefreshPolicy refreshPolicy = new WidgetRefreshPolicy(context, WidgetRefreshPolicy.STARRED_WIDGETS);
+            if (refreshPolicy.acquire(userRequested)) {
+                refreshPolicy.grant();
+                refreshWidgets(context, AppWidgetManager.getInstance(context));
+            } else {
+                Log.d(TAG, "Refresh throttled");
+            }
+        }
+    }
+
+    private boolean isSupportedAction(Intent intent) {
+        return Intent.ACTION_USER_PRESENT.equals(intent.getAction())
+                || ACTION_REFRESH.equals(intent.getAction());
+    }
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        for (int appWidgetId : appWidgetIds) {
+            Log.v(TAG, "Setup widget " + appWidgetId);
+
+            appWidgetManager.updateAppWidget(appWidgetId, getRemoteViews(context, appWidgetId));
+        }
+    }
+
+    /**
+     * Notifies the widgets lists, so the service fetches the starred stations.
+     */
+    private void refreshWidgets(Context context, AppWidgetManager appWidgetManager) {
+        int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, StarredStationsWidgetProvider.class));
+        if (appWidgetIds.length > 0) {
+            appWidgetManager.notifyAppWidgetViewDataChanged(appWidgetIds, R.id.widget_starred_list);
+        }
+    }
+
+    private RemoteViews getRemoteViews(Context context, int appWidgetId) {
+        Intent serviceIntent = new Intent(context, StarredStationsWidgetService.class);
+        serviceIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, appWidgetId);
+        // Makes the intent unique by widget, otherwise the factory would be shared.
+        serviceIntent.setData(Uri.parse(serviceIntent.toUri(Intent.URI_INTENT_SCHEME)));
+
+        RemoteViews remoteViews = new RemoteViews(context.getPackageName(), R.layout.widget_starred_layout);
+        remoteViews.setRemoteAdapter(R.id.widget_starred_list, serviceIntent);
+        remoteViews.setEmptyView(R.id.widget_starred_list, R.id.widget_starred_empty);
+        remoteViews.setOnClickPendingIntent(R.id.widget_starred_title, getRefreshPendingIntent(context));
+
+        return remoteViews;
+    }
+
+    private PendingIntent getRefreshPendingIntent(Context context) {
+        Intent intentRefresh = new Intent(context, StarredStationsWidgetProvider.class);
+        intentRefresh.setAction(ACTION_REFRESH);
+
+        return PendingIntent.getBroadcast(context, 0, intentRefresh, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+}
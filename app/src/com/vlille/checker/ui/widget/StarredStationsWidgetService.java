@@ -0,0 +1,133 @@
+package com.vlille.checker.ui.widget;
+
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+import android.widget.RemoteViews;
+import android.widget.RemoteViewsService;
+
+import com.vlille.checker.R;
+import com.vlille.checker.dataset.StationRepository;
+import com.vlille.checker.dataset.stream.AvailabilityStream;
+import com.vlille.checker.db.StationEntityManager;
+import com.vlille.checker.model.Station;
+import com.vlille.checker.utils.ContextHelper;
+import com.vlille.checker.utils.StationPreferences;
+import com.vlille.checker.utils.color.ColorSelector;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Provides the rows of the starred stations widget.
+ */
+public class StarredStationsWidgetService extends RemoteViewsService {
+
+    @Override
+    public RemoteViewsFactory onGetViewFactory(Intent intent) {
+        return new StarredStationsViewsFactory(getApplicationContext());
+    }
+
+    static class StarredStationsViewsFactory implements RemoteViewsFactory {
+
+        private static final String TAG = StarredStationsViewsFactory.class.getSimpleName();
+
+        private final Context context;
+
+        private StationEntityManager stationEntityManager;
+        private StationPreferences preferences;
+        private List<Station> stations = Collections.emptyList();
+
+        StarredStationsViewsFactory(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public void onCreate() {
+            stationEntityManager = new StationEntityManager(context);
+        }
+
+        /**
+         * Loads the starred stations and refreshes them with a single fetch, when the refresh
+         * policy allows it; the launcher may call it at any time. Otherwise shows the last
+         * known values.
+         * Called on a binder thread, so the fetch can block.
+         */
+        @Override
+        public void onDataSetChanged() {
+            preferences = ContextHelper.getPreferences(context);
+
+            List<Station> starredStations = stationEntityManager.findAllStarred();
+            Log.d(TAG, "Refresh " + starredStations.size() + " starred stations");
+
+            if (starredStations.isEmpty()) {
+                stations = starredStations;
+
+                return;
+            }
+
+            boolean fetch = new WidgetRefreshPolicy(context, WidgetRefreshPolicy.STARRED_WIDGETS).acquireForFill();
+            if (fetch && AvailabilityStream.fetch(starredStations, false)) {
+                for (Station station : starredStations) {
+                    StationRepository.getStationFromCache(station);
+                }
+            } else {
+                StationRepository.applyCachedValues(starredStations);
+            }
+
+            stations = starredStations;
+        }
+
+        @Override
+        public void onDestroy() {
+            stations = Collections.emptyList();
+        }
+
+        @Override
+        public int getCount() {
+            return stations.size();
+        }
+
+        @Override
+        public RemoteViews getViewAt(int position) {
+            RemoteViews remoteViews = new RemoteViews(context.getPackageName(), R.layout.widget_starred_item);
+            if (position >= stations.size()) {
+                return remoteViews;
+            }
+
+            Station station = stations.get(position);
+            remoteViews.setTextViewText(R.id.station_name, station.getName(preferences.isIdVisible()));
+            remoteViews.setTextViewText(R.id.station_details_bikes, station.getBikesAsString());
+            remoteViews.setTextColor(R.id.station_details_bikes, ColorSelector.getColor(context, station.getBikes()));
+            remoteViews.setTextViewText(R.id.station_details_attachs, station.getAttachsAsString());
+            remoteViews.setTextColor(R.id.station_details_attachs, ColorSelector.getColor(context, station.getAttachs()));
+
+            return remoteViews;
+        }
+
+        @Override
+        public RemoteViews getLoadingView() {
+            return null;
+        }
+
+        @Override
+        public int getViewTypeCount() {
+            return 1;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            if (position >= stations.size()) {
+                return position;
+            }
+
+            return stations.get(position).getId();
+        }
+
+        @Override
+        public boolean hasStableIds() {
+            return true;
+        }
+    }
+
+}
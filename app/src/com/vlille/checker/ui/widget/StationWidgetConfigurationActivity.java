@@ -127,8 +127,8 @@ public class StationWidgetConfigurationActivity extends AppCompatActivity implem
     private void updateWidgetData(Station station) {
         saveStationWidgetId(station);
 
-        StationWidgetUpdater stationWidgetUpdater = new StationWidgetUpdater(station, getApplicationContext());
-        stationWidgetUpdater.update();
+        StationWidgetUpdater stationWidgetUpdater = new StationWidgetUpdater(getApplicationContext());
+        stationWidgetUpdater.update(station);
     }
 
     private void saveStationWidgetId(Station station) {
@@ -10,6 +10,9 @@ import com.vlille.checker.db.StationEntityManager;
 import com.vlille.checker.model.MapStationWidget;
 import com.vlille.checker.model.Station;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class StationWidgetProvider extends AppWidgetProvider {
 
     private static final String TAG = StationWidgetProvider.class.getSimpleName();
@@ -22,7 +25,8 @@ public class StationWidgetProvider extends AppWidgetProvider {
 
         Log.d(TAG, "onReceive " + intent.getAction());
         if (isSupportedAction(intent)) {
-            setupWidgets(context, AppWidgetManager.getInstance(context));
+            boolean userRequested = ACTION_REFRESH.equals(intent.getAction());
+            setupWidgets(context, AppWidgetManager.getInstance(context), userRequested, false);
         }
     }
 
@@ -34,30 +38,54 @@ public class StationWidgetProvider extends AppWidgetProvider {
 
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        setupWidgets(context, appWidgetManager);
+        // The widgets need their views, even when the refresh is throttled.
+        setupWidgets(context, appWidgetManager, false, true);
     }
 
-    private void setupWidgets(Context context, AppWidgetManager appWidgetManager) {
+    /**
+     * Refreshes the widgets if the refresh policy allows it.
+     *
+     * @param userRequested      <code>true</code> when the user tapped a widget.
+     * @param showWhenThrottled  <code>true</code> to show the stored values when the refresh is throttled.
+     */
+    private void setupWidgets(Context context, AppWidgetManager appWidgetManager,
+                              boolean userRequested, boolean showWhenThrottled) {
         int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(context, StationWidgetProvider.class));
+        if (appWidgetIds.length == 0) {
+            return;
+        }
 
-        if (appWidgetIds.length > 0) {
-            refreshWidgets(context, appWidgetIds);
+        List<Station> stations = getWidgetsStations(context, appWidgetIds);
+        if (stations.isEmpty()) {
+            return;
+        }
+
+        StationWidgetUpdater stationWidgetUpdater = new StationWidgetUpdater(context);
+        if (new WidgetRefreshPolicy(context, WidgetRefreshPolicy.STATIONS_WIDGETS).acquire(userRequested)) {
+            stationWidgetUpdater.update(stations);
+        } else if (showWhenThrottled) {
+            Log.d(TAG, "Refresh throttled, show the stored values");
+            stationWidgetUpdater.show(stations);
+        } else {
+            Log.d(TAG, "Refresh throttled");
         }
     }
 
-    private void refreshWidgets(Context context, int[] appWidgetIds) {
+    private List<Station> getWidgetsStations(Context context, int[] appWidgetIds) {
         StationEntityManager stationEntityManager = new StationEntityManager(context);
         MapStationWidget stationWithAppWidgetIds = stationEntityManager.findAllWithAppWidget();
 
+        List<Station> stations = new ArrayList<>();
         for (int appWidgetId : appWidgetIds) {
             Station station = stationWithAppWidgetIds.get(appWidgetId);
             if (station != null) {
                 Log.v(TAG, "Update widget= " + appWidgetId + " with station=" + station.getId());
 
-                StationWidgetUpdater stationWidgetUpdater = new StationWidgetUpdater(station,  context);
-                stationWidgetUpdater.update();
+                stations.add(station);
             }
         }
+
+        return stations;
     }
 
     @Override
@@ -5,99 +5,104 @@ import android.appwidget.AppWidgetManager;
 import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources;
-import android.support.v4.content.ContextCompat;
 import android.util.Log;
 import android.view.View;
 import android.widget.RemoteViews;
 
 import com.vlille.checker.R;
-import com.vlille.checker.db.StationEntityManager;
+import com.vlille.checker.history.AvailabilityPredictor;
 import com.vlille.checker.model.Station;
-import com.vlille.checker.ui.delegate.StationUpdateDelegate;
 import com.vlille.checker.utils.ContextHelper;
 import com.vlille.checker.utils.StationPreferences;
 import com.vlille.checker.utils.color.ColorSelector;
 
-public class StationWidgetUpdater {
+import java.util.Collections;
+import java.util.List;
 
-    private static final String TAG = StationWidgetUpdater.class.getSimpleName();
+/**
+ * Updates the widgets of a set of stations, fetching all the stations at once.
+ */
+public class StationWidgetUpdater implements WidgetAsyncTask.WidgetDelegate {
 
-    private Station station;
+    private static final String TAG = StationWidgetUpdater.class.getSimpleName();
 
     private Context context;
     private Resources resources;
-    private RemoteViews remoteViews;
     private AppWidgetManager appWidgetManager;
-    private StationEntityManager stationEntityManager;
     private StationPreferences preferences;
+    private PendingIntent refreshPendingIntent;
 
-    public StationWidgetUpdater(Station station, Context context) {
-        this.station = station;
-
-        this.stationEntityManager = new StationEntityManager(context);
-
+    public StationWidgetUpdater(Context context) {
         this.context = context;
         this.preferences = ContextHelper.getPreferences(context);
         this.resources = context.getResources();
 
-        this.remoteViews = new RemoteViews(context.getPackageName(), R.layout.widget_layout);
         this.appWidgetManager = AppWidgetManager.getInstance(context);
     }
 
-    public void update() {
-        Log.d(TAG, "Update widget stations");
-
-        prepareWidget(station);
-
-        StationUpdateDelegate delegate = new StationUpdateDelegate() {
-            @Override
-            public void update(Station station) {
-                updateWidget(station, false);
-            }
-        };
+    public void update(Station station) {
+        update(Collections.singletonList(station));
+    }
 
-        WidgetAsyncTask widgetAsyncTask = new WidgetAsyncTask(delegate);
-        widgetAsyncTask.execute(station);
+    /**
+     * Shows the stored values of the stations, without refreshing them.
+     */
+    public void show(List<Station> stations) {
+        for (Station station : stations) {
+            updateWidgetView(station, false);
+        }
     }
 
-    private void prepareWidget(Station station) {
-        Log.v(TAG, "Prepare");
+    /**
+     * Shows the stored values of the stations, then refreshes them in a single task.
+     */
+    public void update(List<Station> stations) {
+        Log.d(TAG, "Update widgets of " + stations.size() + " stations");
 
-        addOnClickRefresh();
+        for (Station station : stations) {
+            updateWidgetView(station, true);
+        }
 
-        setStationName(station);
-        updateWidget(station, true);
+        WidgetAsyncTask widgetAsyncTask = new WidgetAsyncTask(this);
+        widgetAsyncTask.execute(stations);
     }
 
-    private void setStationName(Station station) {
-        remoteViews.setTextViewText(R.id.station_name, station.getName(preferences.isIdVisible()));
+    /**
+     * Pushes all the widgets views, from the task thread.
+     */
+    @Override
+    public void update(List<Station> stations, boolean fetched) {
+        Log.v(TAG, "Push " + stations.size() + " widgets views");
+
+        for (Station station : stations) {
+            updateWidgetView(station, false);
+        }
     }
 
-    private void addOnClickRefresh() {
-        Log.v(TAG, "Add onClick refresh");
+    private void updateWidgetView(Station station, boolean loading) {
+        Log.v(TAG, "Update widget [id=" + station.getAppWidgetId() + ",stationId=" + station.getId() + "]");
 
-        Intent intentRefresh = new Intent();
-        intentRefresh.setAction(StationWidgetProvider.ACTION_REFRESH);
+        RemoteViews remoteViews = new RemoteViews(context.getPackageName(), R.layout.widget_layout);
+        remoteViews.setOnClickPendingIntent(R.id.widget_station, getRefreshPendingIntent());
+        remoteViews.setTextViewText(R.id.station_name, station.getName(preferences.isIdVisible()));
+        updateWidgetData(remoteViews, station);
+        remoteViews.setViewVisibility(R.id.station_loading, loading ? View.VISIBLE : View.GONE);
 
-        remoteViews.setOnClickPendingIntent(R.id.widget_station, getPendingIntent(intentRefresh));
+        appWidgetManager.updateAppWidget(station.getAppWidgetId(), remoteViews);
     }
 
-    private PendingIntent getPendingIntent(Intent intent) {
-        return PendingIntent.getBroadcast(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-    }
+    private PendingIntent getRefreshPendingIntent() {
+        if (refreshPendingIntent == null) {
+            Intent intentRefresh = new Intent();
+            intentRefresh.setAction(StationWidgetProvider.ACTION_REFRESH);
 
-    private void updateWidget(Station station, boolean init) {
-        Log.v(TAG, "Update widget [id=" + station.getAppWidgetId() + ",stationId=" + station.getId() + "]");
-        updateWidgetData(station);
+            refreshPendingIntent = PendingIntent.getBroadcast(context, 0, intentRefresh, PendingIntent.FLAG_UPDATE_CURRENT);
+        }
 
-        int gone = init ? View.VISIBLE : View.GONE;
-        remoteViews.setViewVisibility(R.id.station_loading, gone);
-        updateWidgetView(station.getAppWidgetId());
+        return refreshPendingIntent;
     }
 
-    private void updateWidgetData(Station station) {
-        Log.v(TAG, "Update widget data: " + station.getId());
-
+    private void updateWidgetData(RemoteViews remoteViews, Station station) {
         if (preferences.isUpdatedAtVisible()) {
             remoteViews.setViewVisibility(R.id.station_lastupdate_box, View.VISIBLE);
             remoteViews.setTextViewText(R.id.station_lastupdate, station.getShortLastUpdateAsString(resources));
@@ -106,20 +111,14 @@ public class StationWidgetUpdater {
         }
         remoteViews.setViewVisibility(R.id.station_out_of_service_box, station.getOutOfServiceVisibility());
 
+        String prediction = AvailabilityPredictor.getPredictionAsString(resources, station, true);
+        remoteViews.setViewVisibility(R.id.station_prediction, prediction != null ? View.VISIBLE : View.GONE);
+        remoteViews.setTextViewText(R.id.station_prediction, prediction);
+
         remoteViews.setTextViewText(R.id.station_details_bikes, station.getBikesAsString());
         remoteViews.setTextColor(R.id.station_details_bikes, ColorSelector.getColor(context, station.getBikes()));
         remoteViews.setTextViewText(R.id.station_details_attachs, station.getAttachsAsString());
         remoteViews.setTextColor(R.id.station_details_attachs, ColorSelector.getColor(context, station.getAttachs()));
-
-        updateStation(station);
-    }
-
-    private void updateStation(Station station) {
-        stationEntityManager.update(station);
-    }
-
-    private void updateWidgetView(int appWidgetId) {
-        appWidgetManager.updateAppWidget(appWidgetId, remoteViews);
     }
 
 }
@@ -4,31 +4,46 @@ import android.os.AsyncTask;
 import android.util.Log;
 
 import com.vlille.checker.dataset.StationRepository;
+import com.vlille.checker.dataset.stream.AvailabilityStream;
 import com.vlille.checker.model.Station;
-import com.vlille.checker.ui.delegate.StationUpdateDelegate;
 
-public class WidgetAsyncTask extends AsyncTask<Station, Void, Station> {
+import java.util.List;
+
+/**
+ * Refreshes the stations of all the widgets with a single fetch.
+ */
+public class WidgetAsyncTask extends AsyncTask<List<Station>, Void, Void> {
 
     private static final String TAG = WidgetAsyncTask.class.getSimpleName();
 
-    private StationUpdateDelegate viewDelegate;
+    private WidgetDelegate delegate;
 
-    public WidgetAsyncTask(StationUpdateDelegate viewDelegate) {
-        this.viewDelegate = viewDelegate;
+    public WidgetAsyncTask(WidgetDelegate delegate) {
+        this.delegate = delegate;
     }
 
     @Override
-    protected Station doInBackground(Station... stations) {
-        Station station = stations[0];
+    protected Void doInBackground(List<Station>... params) {
+        List<Station> stations = params[0];
+        Log.v(TAG, "Fetch remote info of " + stations.size() + " stations");
+
+        boolean fetched = fetch(stations);
+        delegate.update(stations, fetched);
 
-        Log.v(TAG, "Fetch remote info: " + station.getId());
+        return null;
+    }
 
-        StationRepository.getStation(station);
-        viewDelegate.update(station);
+    private boolean fetch(List<Station> stations) {
+        boolean fetched = AvailabilityStream.fetch(stations, false);
+        for (Station station : stations) {
+            StationRepository.getStationFromCache(station);
+        }
 
-        publishProgress();
+        return fetched;
+    }
 
-        return null;
+    public interface WidgetDelegate {
+        void update(List<Station> stations, boolean fetched);
     }
 
 }
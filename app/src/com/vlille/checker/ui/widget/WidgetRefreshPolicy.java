@@ -0,0 +1,94 @@
+package com.vlille.checker.ui.widget;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Rate limits the widgets refreshes.
+ *
+ * The unlock, boot and update broadcasts only refresh the widgets when the last refresh
+ * is older than a minimum interval, so unlocking the phone often does not fetch the stations
+ * each time. A tap on a widget always refreshes, except within a short window coalescing
+ * the bursts of taps.
+ *
+ * The last refresh time is stored in the preferences, as the receiver process does not last.
+ *
+ * The widgets lists are filled by a service, called back by the launcher as well: the refresh
+ * acquired by the provider is granted to the next fill, and any other fill is an automatic one.
+ */
+class WidgetRefreshPolicy {
+
+    private static final String PREFERENCES_NAME = "widget_refresh";
+
+    private static final String GRANTED_SUFFIX = "_granted";
+
+    /**
+     * The key of the stations widgets last refresh.
+     */
+    static final String STATIONS_WIDGETS = "last_refresh";
+
+    /**
+     * The key of the starred stations widgets last refresh.
+     */
+    static final String STARRED_WIDGETS = "starred_last_refresh";
+
+    /**
+     * The minimum interval between two automatic refreshes.
+     */
+    static final long MIN_INTERVAL_IN_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * The window during which the refresh requests are coalesced.
+     */
+    static final long BURST_WINDOW_IN_MILLIS = 3 * 1000;
+
+    private final SharedPreferences preferences;
+    private final String lastRefreshKey;
+
+    WidgetRefreshPolicy(Context context, String lastRefreshKey) {
+        this.preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.lastRefreshKey = lastRefreshKey;
+    }
+
+    /**
+     * Checks if the widgets should be refreshed and, if so, records the refresh.
+     *
+     * @param userRequested <code>true</code> when the user tapped a widget.
+     */
+    boolean acquire(boolean userRequested) {
+        long now = System.currentTimeMillis();
+        long elapsed = now - preferences.getLong(lastRefreshKey, 0);
+        long minInterval = userRequested ? BURST_WINDOW_IN_MILLIS : MIN_INTERVAL_IN_MILLIS;
+
+        // A negative elapsed time means the clock has been changed.
+        if (elapsed >= 0 && elapsed < minInterval) {
+            return false;
+        }
+
+        preferences.edit().putLong(lastRefreshKey, now).apply();
+
+        return true;
+    }
+
+    /**
+     * Grants the refresh just acquired to the next fill of the widgets lists.
+     */
+    void grant() {
+        preferences.edit().putBoolean(lastRefreshKey + GRANTED_SUFFIX, true).apply();
+    }
+
+    /**
+     * Checks if a fill of the widgets lists should fetch the stations: the refresh granted by
+     * the provider, or an automatic refresh otherwise.
+     */
+    boolean acquireForFill() {
+        if (preferences.getBoolean(lastRefreshKey + GRANTED_SUFFIX, false)) {
+            preferences.edit().remove(lastRefreshKey + GRANTED_SUFFIX).apply();
+
+            return true;
+        }
+
+        return acquire(false);
+    }
+
+}
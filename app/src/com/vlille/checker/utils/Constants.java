@@ -9,9 +9,9 @@ public class Constants {
 	public static final String TRACEPOT_REPORT_URl = "https://collector.tracepot.com/6e1414b1";
 
 	/**
-	 * Local file stations file name.
+	 * Local stations catalogue asset name, generated at build time from catalogue/vlille_stations.xml.
 	 */
-	public static final String LOCAL_STATIONS_LIST_FILE_NAME = "vlille_stations.xml";
+	public static final String LOCAL_STATIONS_CATALOGUE_FILE_NAME = "vlille_stations.bin";
 
 	/**
 	 * URL to get stations list.
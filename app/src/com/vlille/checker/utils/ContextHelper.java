@@ -47,6 +47,15 @@ public final class ContextHelper {
 		return networkAvailable;
 	}
 
+	/**
+	 * Gets the background update interval in minutes, 0 when disabled.
+	 */
+	public static int getSyncIntervalInMinutes(Context context) {
+		String value = getDefaultSharedPreferences(context).getString(SYNC_INTERVAL, SYNC_INTERVAL_DEFAULT_VALUE);
+
+		return NumberUtils.toInt(value, NumberUtils.INTEGER_ZERO);
+	}
+
 	/**
 	 * Gets the radius value.
 	 */
@@ -3,6 +3,7 @@ package com.vlille.checker.utils;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.location.Location;
 import android.net.Uri;
 import android.util.Log;
 import android.widget.Toast;
@@ -25,12 +26,25 @@ public class MapsIntentChooser {
 
     private static final String TAG = MapsIntentChooser.class.getSimpleName();
     private static final String GMAPS_URL = "http://maps.google.com/maps?saddr=&daddr=%s";
+    private static final String GMAPS_BICYCLING_URL = "http://maps.google.com/maps?saddr=%s&daddr=%s+to:%s&dirflg=b";
 
     private Context context;
+    private Location origin;
+    private Station pickup;
     private Station station;
 
     public MapsIntentChooser(Context context, Station station) {
+        this(context, null, null, station);
+    }
+
+    /**
+     * @param origin the location to walk from, or null for the current location.
+     * @param pickup the station to pick up a bike on the way, or null to go straight to the station.
+     */
+    public MapsIntentChooser(Context context, Location origin, Station pickup, Station station) {
         this.context = context;
+        this.origin = origin;
+        this.pickup = pickup;
         this.station = station;
     }
 
@@ -39,6 +53,15 @@ public class MapsIntentChooser {
         mapsIntentChooser.showIntent();
     }
 
+    /**
+     * Shows the itinerary to the station through a pickup station, from the walk to the pickup
+     * to the ride to the station.
+     */
+    public static void chooseTripIntent(Context context, Location origin, Station pickup, Station station) {
+        MapsIntentChooser mapsIntentChooser = new MapsIntentChooser(context, origin, pickup, station);
+        mapsIntentChooser.showIntent();
+    }
+
     private static String replaceCommaByDot(String value) {
         return value.replace(",", ".");
     }
@@ -74,15 +97,27 @@ public class MapsIntentChooser {
     }
 
     private Uri getLocationUri() {
-        Uri location = Uri.parse(String.format(
-                GMAPS_URL,
-                getLatitudeAndLongitude()));
+        Uri location = Uri.parse(pickup == null
+                ? String.format(GMAPS_URL, getLatitudeAndLongitude(station))
+                : String.format(GMAPS_BICYCLING_URL, getLatitudeAndLongitude(origin),
+                getLatitudeAndLongitude(pickup), getLatitudeAndLongitude(station)));
         Log.d(TAG, "Uri geo " + location);
 
         return location;
     }
 
-    private String getLatitudeAndLongitude() {
+    /**
+     * @return the location coordinates, or an empty string for the current location.
+     */
+    private static String getLatitudeAndLongitude(Location location) {
+        if (location == null) {
+            return "";
+        }
+
+        return location.getLatitude() + "," + location.getLongitude();
+    }
+
+    private static String getLatitudeAndLongitude(Station station) {
         return String.format(
                 "%s,%s",
                 replaceCommaByDot(station.getLatitudeAsString()),
@@ -47,6 +47,16 @@ public final class PreferenceKeys {
      */
     public static final long POSITION_RADIUS_DEFAULT_VALUE = 500L;
 
+    /**
+     * The background update interval, in minutes.
+     */
+    public static final String SYNC_INTERVAL = "prefs_sync_interval_value";
+
+    /**
+     * Updates in background every 30 minutes, by default.
+     */
+    public static final String SYNC_INTERVAL_DEFAULT_VALUE = "30";
+
     /**
      * The data status last update.
      */
@@ -0,0 +1,49 @@
+package com.vlille.checker.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Folds texts to a comparable form: lower case, without accents and with
+ * every non alphanumeric character collapsed to a single space.
+ */
+public final class TextFolding {
+
+    private TextFolding() {}
+
+    /**
+     * Folds a text, ie "Gare Lille-Flandres (CB)" becomes "gare lille flandres cb".
+     *
+     * @param value the value, can be null.
+     * @return the folded value, never null.
+     */
+    public static String fold(String value) {
+        if (value == null || value.length() == 0) {
+            return "";
+        }
+
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && builder.length() > 0) {
+                    builder.append(' ');
+                }
+                pendingSpace = false;
+                builder.append(Character.toLowerCase(c));
+            } else {
+                pendingSpace = true;
+            }
+        }
+
+        return builder.toString().toLowerCase(Locale.ROOT);
+    }
+
+}
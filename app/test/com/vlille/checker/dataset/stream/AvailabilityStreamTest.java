@@ -0,0 +1,359 @@
+package com.vlille.checker.dataset.stream;
+
+import com.vlille.checker.dataset.StationFreshness;
+import com.vlille.checker.model.Station;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AvailabilityStreamTest {
+
+    private static final long TIMEOUT_IN_MILLIS = 5000;
+
+    private StubAvailabilityFeed feed;
+    private final List<AvailabilityStream.Subscription> subscriptions = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        StationFreshness.clear();
+
+        feed = new StubAvailabilityFeed();
+        AvailabilityStream.setFeed(feed);
+
+        for (long stationId = 1; stationId <= 5; stationId++) {
+            feed.serve(stationId, 10, 10);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (AvailabilityStream.Subscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+        StationFreshness.clear();
+    }
+
+    @Test
+    public void startsTheFeedWhileSubscribed() {
+        assertFalse(feed.isStarted());
+
+        AvailabilityStream.Subscription first = subscribe(ids(1), new RecordingSubscriber(), new ManualExecutor());
+        AvailabilityStream.Subscription second = subscribe(ids(2), new RecordingSubscriber(), new ManualExecutor());
+        assertTrue(feed.isStarted());
+        assertEquals(1, feed.getStarts());
+
+        first.cancel();
+        assertTrue(feed.isStarted());
+
+        second.cancel();
+        assertFalse(feed.isStarted());
+    }
+
+    @Test
+    public void feedStopsOnlyWhenEverySubscriptionOfASubscriberIsCancelled() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        AvailabilityStream.Subscription first = subscribe(ids(1), subscriber, new ManualExecutor());
+        AvailabilityStream.Subscription second = subscribe(ids(1), subscriber, new ManualExecutor());
+        assertEquals(1, feed.getStarts());
+
+        // A subscription left behind keeps polling.
+        second.cancel();
+        assertTrue(feed.isStarted());
+
+        first.cancel();
+        assertFalse(feed.isStarted());
+        assertTrue(AvailabilityStream.getSubscribedIds().isEmpty());
+    }
+
+    @Test
+    public void subscribedIdsAreTheUnionOfTheSubscriptions() {
+        AvailabilityStream.Subscription first = subscribe(ids(1, 2), new RecordingSubscriber(), new ManualExecutor());
+        subscribe(ids(2, 3), new RecordingSubscriber(), new ManualExecutor());
+        assertEquals(ids(1, 2, 3), AvailabilityStream.getSubscribedIds());
+
+        first.setStationIds(ids(4));
+        assertEquals(ids(2, 3, 4), AvailabilityStream.getSubscribedIds());
+
+        first.cancel();
+        assertEquals(ids(2, 3), AvailabilityStream.getSubscribedIds());
+    }
+
+    @Test
+    public void deliversOnlyTheSubscribedStations() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        subscribe(ids(1, 2), subscriber, executor);
+
+        feed.push(2, 3);
+        executor.runAll();
+
+        assertEquals(1, subscriber.deliveries.size());
+        assertEquals(ids(2), getIds(subscriber.deliveries.get(0)));
+    }
+
+    @Test
+    public void keepsOneDeliveryPendingWithTheLatestValues() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        subscribe(ids(1, 2), subscriber, executor);
+
+        feed.serve(1, 1, 19);
+        feed.push(1);
+        feed.serve(1, 2, 18);
+        feed.push(1);
+        feed.push(2);
+        assertEquals(1, executor.size());
+
+        executor.runAll();
+
+        assertEquals(1, subscriber.deliveries.size());
+        List<Station> delivered = subscriber.deliveries.get(0);
+        assertEquals(ids(1, 2), getIds(delivered));
+        for (Station station : delivered) {
+            if (station.id == 1) {
+                assertEquals("2", station.bikes);
+            }
+        }
+
+        // Delivered, the next push is scheduled again.
+        feed.push(1);
+        assertEquals(1, executor.size());
+    }
+
+    @Test
+    public void aSlowSubscriberDoesNotHoldTheOthersBack() {
+        ManualExecutor slowExecutor = new ManualExecutor();
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSubscriber slowSubscriber = new RecordingSubscriber();
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        subscribe(ids(1), slowSubscriber, slowExecutor);
+        subscribe(ids(1), subscriber, executor);
+
+        for (int i = 0; i < 100; i++) {
+            feed.push(1);
+            executor.runAll();
+        }
+
+        assertEquals(100, subscriber.deliveries.size());
+        assertEquals(1, slowExecutor.size());
+        slowExecutor.runAll();
+        assertEquals(1, slowSubscriber.deliveries.size());
+    }
+
+    @Test
+    public void cancelDropsThePendingDelivery() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        AvailabilityStream.Subscription subscription = subscribe(ids(1), subscriber, executor);
+
+        feed.push(1);
+        subscription.cancel();
+        executor.runAll();
+
+        assertTrue(subscriber.deliveries.isEmpty());
+    }
+
+    @Test
+    public void cancelDuringADelivery() {
+        ManualExecutor executor = new ManualExecutor();
+        final List<AvailabilityStream.Subscription> cancelled = new ArrayList<>();
+        RecordingSubscriber cancelling = new RecordingSubscriber() {
+            @Override
+            public void onAvailabilities(List<Station> stations) {
+                super.onAvailabilities(stations);
+                for (AvailabilityStream.Subscription subscription : cancelled) {
+                    subscription.cancel();
+                }
+            }
+        };
+        RecordingSubscriber other = new RecordingSubscriber();
+        cancelled.add(subscribe(ids(1), cancelling, executor));
+        cancelled.add(subscribe(ids(1), other, executor));
+
+        feed.push(1);
+        assertEquals(2, executor.size());
+        executor.runAll();
+
+        // The delivery already scheduled for the other subscriber is dropped.
+        assertEquals(1, cancelling.deliveries.size());
+        assertTrue(other.deliveries.isEmpty());
+
+        feed.push(1);
+        assertEquals(0, executor.size());
+        assertTrue(AvailabilityStream.getSubscribedIds().isEmpty());
+        assertFalse(feed.isStarted());
+    }
+
+    @Test
+    public void fetchOfJustFetchedStationsIssuesNoRequest() {
+        assertTrue(AvailabilityStream.fetch(stations(1, 2), false));
+        assertEquals(1, feed.requests.size());
+
+        // Another screen showing the same stations.
+        assertTrue(AvailabilityStream.fetch(stations(2, 1), false));
+        assertEquals(1, feed.requests.size());
+
+        // Only the stale one is requested.
+        assertTrue(AvailabilityStream.fetch(stations(2, 3), false));
+        assertEquals(2, feed.requests.size());
+        assertEquals(ids(3), feed.requests.get(1));
+    }
+
+    @Test
+    public void forcedFetchIsRequested() {
+        AvailabilityStream.fetch(stations(1), false);
+        AvailabilityStream.fetch(stations(1), true);
+
+        assertEquals(2, feed.requests.size());
+    }
+
+    @Test
+    public void concurrentFetchesShareTheRequestInFlight() throws Exception {
+        feed.hold();
+
+        ExecutorService screens = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> first = screens.submit(fetchTask(1, 2));
+            awaitRequests(1);
+
+            Future<Boolean> second = screens.submit(fetchTask(2, 1));
+            // The second fetch waits on the first request, without requesting.
+            Thread.sleep(100);
+            assertFalse(second.isDone());
+            assertEquals(1, feed.requests.size());
+
+            feed.release();
+
+            assertTrue(first.get(TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS));
+            assertTrue(second.get(TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS));
+            assertEquals(1, feed.requests.size());
+        } finally {
+            feed.release();
+            screens.shutdownNow();
+        }
+    }
+
+    @Test
+    public void fetchPublishesToTheSubscribers() {
+        ManualExecutor executor = new ManualExecutor();
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        subscribe(ids(1, 2), subscriber, executor);
+
+        AvailabilityStream.fetch(stations(1, 2, 3), false);
+        executor.runAll();
+
+        assertEquals(1, subscriber.deliveries.size());
+        assertEquals(ids(1, 2), getIds(subscriber.deliveries.get(0)));
+    }
+
+    private AvailabilityStream.Subscription subscribe(Collection<Long> stationIds,
+                                                      AvailabilityStream.Subscriber subscriber,
+                                                      ManualExecutor executor) {
+        AvailabilityStream.Subscription subscription = AvailabilityStream.subscribe(stationIds, subscriber, executor);
+        subscriptions.add(subscription);
+
+        return subscription;
+    }
+
+    private Callable<Boolean> fetchTask(final long... stationIds) {
+        return new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return AvailabilityStream.fetch(stations(stationIds), false);
+            }
+        };
+    }
+
+    private void awaitRequests(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_IN_MILLIS;
+        while (feed.requests.size() < count) {
+            assertTrue("Request not received", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static List<Station> stations(long... stationIds) {
+        List<Station> stations = new ArrayList<>();
+        for (long stationId : stationIds) {
+            stations.add(StubAvailabilityFeed.newStation(stationId, 0, 0));
+        }
+
+        return stations;
+    }
+
+    private static HashSet<Long> ids(long... stationIds) {
+        HashSet<Long> ids = new HashSet<>();
+        for (long stationId : stationIds) {
+            ids.add(stationId);
+        }
+
+        return ids;
+    }
+
+    private static HashSet<Long> getIds(List<Station> stations) {
+        HashSet<Long> ids = new HashSet<>();
+        for (Station station : stations) {
+            ids.add(station.id);
+        }
+
+        return ids;
+    }
+
+    /**
+     * Runs the deliveries on demand, as a busy main thread would.
+     */
+    private static class ManualExecutor implements Executor {
+
+        private final Queue<Runnable> runnables = new LinkedList<>();
+
+        @Override
+        public synchronized void execute(Runnable runnable) {
+            runnables.add(runnable);
+        }
+
+        synchronized int size() {
+            return runnables.size();
+        }
+
+        void runAll() {
+            Runnable runnable;
+            while ((runnable = poll()) != null) {
+                runnable.run();
+            }
+        }
+
+        private synchronized Runnable poll() {
+            return runnables.poll();
+        }
+    }
+
+    private static class RecordingSubscriber implements AvailabilityStream.Subscriber {
+
+        final List<List<Station>> deliveries = Collections.synchronizedList(new ArrayList<List<Station>>());
+
+        @Override
+        public void onAvailabilities(List<Station> stations) {
+            deliveries.add(stations);
+        }
+    }
+
+}
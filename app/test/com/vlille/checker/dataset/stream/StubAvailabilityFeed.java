@@ -0,0 +1,147 @@
+package com.vlille.checker.dataset.stream;
+
+import com.vlille.checker.dataset.StationFreshness;
+import com.vlille.checker.model.Station;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A feed standing for the remote server: it serves the stations it is given, records the
+ * requests it receives, and can hold them to emulate a slow network.
+ */
+class StubAvailabilityFeed implements AvailabilityFeed {
+
+    /**
+     * The ids of each request received, in order.
+     */
+    final List<Set<Long>> requests = new CopyOnWriteArrayList<>();
+
+    private final Map<Long, Station> served = new HashMap<>();
+    private final List<FutureTask<Boolean>> heldRequests = new ArrayList<>();
+
+    private boolean holding;
+    private boolean started;
+    private int starts;
+
+    @Override
+    public synchronized void start() {
+        started = true;
+        starts++;
+    }
+
+    @Override
+    public synchronized void stop() {
+        started = false;
+    }
+
+    synchronized boolean isStarted() {
+        return started;
+    }
+
+    synchronized int getStarts() {
+        return starts;
+    }
+
+    /**
+     * Sets the availability the server answers with.
+     */
+    synchronized void serve(long stationId, int bikes, int attachs) {
+        served.put(stationId, newStation(stationId, bikes, attachs));
+    }
+
+    /**
+     * Holds the next requests until {@link #release()}.
+     */
+    synchronized void hold() {
+        holding = true;
+    }
+
+    void release() {
+        List<FutureTask<Boolean>> released;
+        synchronized (this) {
+            holding = false;
+            released = new ArrayList<>(heldRequests);
+            heldRequests.clear();
+        }
+
+        for (FutureTask<Boolean> request : released) {
+            request.run();
+        }
+    }
+
+    @Override
+    public Future<Boolean> request(final Set<Long> stationIds, boolean force) {
+        requests.add(new HashSet<>(stationIds));
+
+        FutureTask<Boolean> request = new FutureTask<>(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return answer(stationIds);
+            }
+        });
+
+        synchronized (this) {
+            if (holding) {
+                heldRequests.add(request);
+
+                return request;
+            }
+        }
+
+        request.run();
+
+        return request;
+    }
+
+    /**
+     * Pushes the served availability of stations, as a server-sent event would.
+     */
+    void push(long... stationIds) {
+        List<Station> stations = new ArrayList<>();
+        synchronized (this) {
+            for (long stationId : stationIds) {
+                stations.add(served.get(stationId));
+            }
+        }
+
+        AvailabilityStream.publish(stations);
+    }
+
+    private boolean answer(Set<Long> stationIds) {
+        List<Station> stations = new ArrayList<>();
+        synchronized (this) {
+            for (Long stationId : stationIds) {
+                Station station = served.get(stationId);
+                if (station != null) {
+                    stations.add(station);
+                }
+            }
+        }
+
+        for (Station station : stations) {
+            StationFreshness.markFetched(station.id);
+        }
+        AvailabilityStream.publish(stations);
+
+        return stations.size() == stationIds.size();
+    }
+
+    static Station newStation(long stationId, int bikes, int attachs) {
+        Station station = new Station();
+        station.id = stationId;
+        station.setBikes(String.valueOf(bikes));
+        station.setAttachs(String.valueOf(attachs));
+
+        return station;
+    }
+
+}
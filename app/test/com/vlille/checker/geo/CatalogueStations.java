@@ -0,0 +1,113 @@
+package com.vlille.checker.geo;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * The full station set of the bundled catalogue, and the brute-force scans the geo queries are
+ * checked against.
+ */
+final class CatalogueStations {
+
+    private static final String[] CATALOGUE_PATHS = {
+            "catalogue/vlille_stations.xml",
+            "app/catalogue/vlille_stations.xml"
+    };
+
+    private CatalogueStations() {}
+
+    static class TestStation implements Located {
+
+        final long id;
+        final double latitude;
+        final double longitude;
+
+        TestStation(long id, double latitude, double longitude) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public double getLatitude() {
+            return latitude;
+        }
+
+        @Override
+        public double getLongitude() {
+            return longitude;
+        }
+    }
+
+    static List<TestStation> load() {
+        File file = null;
+        for (String path : CATALOGUE_PATHS) {
+            if (new File(path).exists()) {
+                file = new File(path);
+            }
+        }
+        if (file == null) {
+            throw new IllegalStateException("The stations catalogue is not found");
+        }
+
+        try {
+            NodeList markers = DocumentBuilderFactory.newInstance()
+                    .newDocumentBuilder()
+                    .parse(file)
+                    .getElementsByTagName("marker");
+
+            List<TestStation> stations = new ArrayList<>(markers.getLength());
+            for (int i = 0; i < markers.getLength(); i++) {
+                Element marker = (Element) markers.item(i);
+                stations.add(new TestStation(
+                        Long.parseLong(marker.getAttribute("id")),
+                        Double.parseDouble(marker.getAttribute("lat")),
+                        Double.parseDouble(marker.getAttribute("lng"))));
+            }
+
+            return stations;
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to read " + file, e);
+        }
+    }
+
+    /**
+     * The k nearest stations accepted by the filter, by scanning them all.
+     */
+    static List<Neighbor> bruteForceNearest(List<? extends Located> stations,
+                                            final double latitude, final double longitude,
+                                            int k, double maxDistanceInMeters,
+                                            StationGridIndex.Filter filter) {
+        List<Neighbor> neighbors = new ArrayList<>();
+        for (int i = 0; i < stations.size(); i++) {
+            Located station = stations.get(i);
+            double distance = GeoMath.haversine(latitude, longitude, station.getLatitude(), station.getLongitude());
+            if (distance <= maxDistanceInMeters && filter.accept(station.getId(), i)) {
+                neighbors.add(new Neighbor(station.getId(), i, distance));
+            }
+        }
+
+        Collections.sort(neighbors, new Comparator<Neighbor>() {
+            @Override
+            public int compare(Neighbor neighbor1, Neighbor neighbor2) {
+                return Double.compare(neighbor1.getDistanceInMeters(), neighbor2.getDistanceInMeters());
+            }
+        });
+
+        return neighbors.size() > k ? new ArrayList<>(neighbors.subList(0, k)) : neighbors;
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.vlille.checker.geo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NearestStationsTrackerTest {
+
+    private static final int K = 5;
+    private static final int MINIMUM = 2;
+    private static final double MAX_DISTANCE_IN_METERS = 2000;
+
+    /**
+     * Near the "Rihour" station, in the city center.
+     */
+    private static final double LATITUDE = 50.6359;
+    private static final double LONGITUDE = 3.0625;
+
+    private List<CatalogueStations.TestStation> stations;
+    private StationGridIndex index;
+    private MapAvailabilitySource availabilitySource;
+    private NearestStationsTracker tracker;
+
+    /**
+     * The location last taken by the tracker.
+     */
+    private double latitude;
+    private double longitude;
+
+    private final StationGridIndex.Filter available = new StationGridIndex.Filter() {
+        @Override
+        public boolean accept(long id, int index) {
+            int bikes = availabilitySource.getBikes(id);
+
+            return bikes != NearestStationsTracker.AvailabilitySource.UNKNOWN && bikes >= MINIMUM;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        stations = CatalogueStations.load();
+        index = new StationGridIndex(stations);
+        availabilitySource = new MapAvailabilitySource();
+
+        Random random = new Random(3);
+        for (Located station : stations) {
+            availabilitySource.bikes.put(station.getId(), random.nextInt(6));
+        }
+
+        tracker = new NearestStationsTracker(index, availabilitySource,
+                NearestStationsTracker.Criteria.BIKES, MINIMUM, K, MAX_DISTANCE_IN_METERS);
+    }
+
+    @Test
+    public void nothingBeforeTheFirstLocation() {
+        assertTrue(tracker.getNearest().isEmpty());
+        assertFalse(tracker.onAvailabilityChanged(stations.get(0).getId(), 0));
+    }
+
+    @Test
+    public void locationMatchesBruteForce() {
+        assertTrue(moveTo(LATITUDE, LONGITUDE));
+
+        assertEquals(K, tracker.getNearest().size());
+        assertMatchesBruteForce();
+    }
+
+    @Test
+    public void smallMovementIsIgnored() {
+        moveTo(LATITUDE, LONGITUDE);
+        List<Neighbor> nearest = tracker.getNearest();
+
+        // About 11 meters north.
+        assertFalse(moveTo(LATITUDE + 0.0001, LONGITUDE));
+        assertEquals(nearest, tracker.getNearest());
+
+        // About 110 meters north.
+        assertTrue(moveTo(LATITUDE + 0.001, LONGITUDE));
+    }
+
+    @Test
+    public void changeOfAFarStationIsShortCircuited() {
+        moveTo(LATITUDE, LONGITUDE);
+        List<Neighbor> nearest = tracker.getNearest();
+
+        int farthest = getFarthestIndex();
+        availabilitySource.bikes.put(stations.get(farthest).getId(), 10);
+
+        assertFalse(tracker.onAvailabilityChanged(stations.get(farthest).getId(), farthest));
+        assertEquals(nearest, tracker.getNearest());
+        assertMatchesBruteForce();
+    }
+
+    @Test
+    public void emptiedNearestStationIsReplaced() {
+        moveTo(LATITUDE, LONGITUDE);
+        Neighbor first = tracker.getNearest().get(0);
+
+        availabilitySource.bikes.put(first.getId(), 0);
+
+        assertTrue(tracker.onAvailabilityChanged(first.getId(), first.getIndex()));
+        for (Neighbor neighbor : tracker.getNearest()) {
+            assertTrue(neighbor.getId() != first.getId());
+        }
+        assertMatchesBruteForce();
+    }
+
+    @Test
+    public void refilledCloserStationEntersTheResult() {
+        moveTo(LATITUDE, LONGITUDE);
+        List<Neighbor> all = CatalogueStations.bruteForceNearest(stations, LATITUDE, LONGITUDE, 1,
+                MAX_DISTANCE_IN_METERS, StationGridIndex.Filter.ALL);
+        Neighbor closest = all.get(0);
+
+        availabilitySource.bikes.put(closest.getId(), 0);
+        tracker.onAvailabilityChanged(closest.getId(), closest.getIndex());
+        availabilitySource.bikes.put(closest.getId(), 5);
+
+        assertTrue(tracker.onAvailabilityChanged(closest.getId(), closest.getIndex()));
+        assertEquals(closest.getId(), tracker.getNearest().get(0).getId());
+        assertMatchesBruteForce();
+    }
+
+    /**
+     * Whether the change is short-circuited or not, the result always matches a full scan.
+     */
+    @Test
+    public void randomChangesMatchBruteForce() {
+        moveTo(LATITUDE, LONGITUDE);
+
+        Random random = new Random(11);
+        int shortCircuits = 0;
+        for (int i = 0; i < 5000; i++) {
+            int changed = random.nextInt(stations.size());
+            long id = stations.get(changed).getId();
+            availabilitySource.bikes.put(id, random.nextInt(6));
+
+            if (!tracker.onAvailabilityChanged(id, changed)) {
+                shortCircuits++;
+            }
+            assertMatchesBruteForce();
+
+            if (i % 500 == 0) {
+                moveTo(LATITUDE + (random.nextDouble() - 0.5) / 50, LONGITUDE + (random.nextDouble() - 0.5) / 50);
+                assertMatchesBruteForce();
+            }
+        }
+
+        // Most of the stations are far from the location.
+        assertTrue(shortCircuits > 2500);
+    }
+
+    private boolean moveTo(double newLatitude, double newLongitude) {
+        boolean moved = tracker.onLocationChanged(newLatitude, newLongitude);
+        if (moved) {
+            latitude = newLatitude;
+            longitude = newLongitude;
+        }
+
+        return moved;
+    }
+
+    private void assertMatchesBruteForce() {
+        StationGridIndexTest.assertSameNeighbors(
+                CatalogueStations.bruteForceNearest(stations, latitude, longitude, K, MAX_DISTANCE_IN_METERS, available),
+                tracker.getNearest());
+    }
+
+    private int getFarthestIndex() {
+        int farthest = 0;
+        for (int i = 1; i < stations.size(); i++) {
+            if (index.distanceTo(i, LATITUDE, LONGITUDE) > index.distanceTo(farthest, LATITUDE, LONGITUDE)) {
+                farthest = i;
+            }
+        }
+
+        return farthest;
+    }
+
+    private static class MapAvailabilitySource implements NearestStationsTracker.AvailabilitySource {
+
+        final Map<Long, Integer> bikes = new HashMap<>();
+
+        @Override
+        public int getBikes(long id) {
+            Integer value = bikes.get(id);
+
+            return value == null ? UNKNOWN : value;
+        }
+
+        @Override
+        public int getDocks(long id) {
+            return UNKNOWN;
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.vlille.checker.geo;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times the geo queries over the full station set, against a brute-force scan.
+ *
+ * Not a test: run its main method from the IDE, from the app module directory.
+ */
+public final class StationGridIndexBenchmark {
+
+    private static final int WARM_UP_QUERIES = 20000;
+    private static final int QUERIES = 100000;
+    private static final int K = 5;
+    private static final double RADIUS_IN_METERS = 500;
+
+    private StationGridIndexBenchmark() {}
+
+    public static void main(String[] args) {
+        List<CatalogueStations.TestStation> stations = CatalogueStations.load();
+
+        long start = System.nanoTime();
+        StationGridIndex index = new StationGridIndex(stations);
+        System.out.printf("Index of %d stations built in %.1f us%n", stations.size(), (System.nanoTime() - start) / 1e3);
+
+        double[] latitudes = new double[QUERIES];
+        double[] longitudes = new double[QUERIES];
+        Random random = new Random(1);
+        for (int i = 0; i < QUERIES; i++) {
+            Located station = stations.get(random.nextInt(stations.size()));
+            latitudes[i] = station.getLatitude() + (random.nextDouble() - 0.5) / 100;
+            longitudes[i] = station.getLongitude() + (random.nextDouble() - 0.5) / 100;
+        }
+
+        run("grid nearest", index, stations, latitudes, longitudes, WARM_UP_QUERIES, false, false);
+        run("grid nearest", index, stations, latitudes, longitudes, QUERIES, false, true);
+        run("brute-force nearest", index, stations, latitudes, longitudes, WARM_UP_QUERIES, true, false);
+        run("brute-force nearest", index, stations, latitudes, longitudes, QUERIES, true, true);
+
+        long sink = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            sink += index.withinRadius(latitudes[i], longitudes[i], RADIUS_IN_METERS, StationGridIndex.Filter.ALL).size();
+        }
+        print("grid within " + (int) RADIUS_IN_METERS + " m", start, sink);
+    }
+
+    private static void run(String name, StationGridIndex index, List<CatalogueStations.TestStation> stations,
+                            double[] latitudes, double[] longitudes, int queries,
+                            boolean bruteForce, boolean print) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            List<Neighbor> nearest = bruteForce
+                    ? CatalogueStations.bruteForceNearest(stations, latitudes[i], longitudes[i], K,
+                    Double.MAX_VALUE, StationGridIndex.Filter.ALL)
+                    : index.nearest(latitudes[i], longitudes[i], K, Double.MAX_VALUE, StationGridIndex.Filter.ALL);
+            sink += nearest.size();
+        }
+
+        if (print) {
+            print(name, start, sink / queries);
+        }
+    }
+
+    private static void print(String name, long start, long sink) {
+        System.out.printf("%-24s %6.2f us/query (%d)%n", name, (System.nanoTime() - start) / 1e3 / QUERIES, sink);
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.vlille.checker.geo;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StationGridIndexTest {
+
+    private static final double DELTA_IN_METERS = 1e-6;
+
+    private static final int QUERIES = 2000;
+
+    /**
+     * The queries are drawn around the stations, up to about 2 km outside.
+     */
+    private static final double MARGIN_IN_DEGREES = 0.02;
+
+    private static final StationGridIndex.Filter ONE_IN_THREE = new StationGridIndex.Filter() {
+        @Override
+        public boolean accept(long id, int index) {
+            return id % 3 == 0;
+        }
+    };
+
+    private static List<CatalogueStations.TestStation> stations;
+    private static StationGridIndex index;
+
+    private static double minLatitude;
+    private static double maxLatitude;
+    private static double minLongitude;
+    private static double maxLongitude;
+
+    @BeforeClass
+    public static void setUp() {
+        stations = CatalogueStations.load();
+        index = new StationGridIndex(stations);
+
+        minLatitude = Double.MAX_VALUE;
+        maxLatitude = -Double.MAX_VALUE;
+        minLongitude = Double.MAX_VALUE;
+        maxLongitude = -Double.MAX_VALUE;
+        for (Located station : stations) {
+            minLatitude = Math.min(minLatitude, station.getLatitude());
+            maxLatitude = Math.max(maxLatitude, station.getLatitude());
+            minLongitude = Math.min(minLongitude, station.getLongitude());
+            maxLongitude = Math.max(maxLongitude, station.getLongitude());
+        }
+    }
+
+    @Test
+    public void indexesTheFullStationSet() {
+        assertTrue(stations.size() > 200);
+        assertEquals(stations.size(), index.size());
+    }
+
+    @Test
+    public void nearestMatchesBruteForce() {
+        Random random = new Random(42);
+        int[] ks = {1, 5, 20};
+        double[] maxDistances = {Double.MAX_VALUE, 300, 1500};
+        StationGridIndex.Filter[] filters = {StationGridIndex.Filter.ALL, ONE_IN_THREE};
+
+        for (int i = 0; i < QUERIES; i++) {
+            double latitude = randomLatitude(random);
+            double longitude = randomLongitude(random);
+            int k = ks[random.nextInt(ks.length)];
+            double maxDistance = maxDistances[random.nextInt(maxDistances.length)];
+            StationGridIndex.Filter filter = filters[random.nextInt(filters.length)];
+
+            assertSameNeighbors(
+                    CatalogueStations.bruteForceNearest(stations, latitude, longitude, k, maxDistance, filter),
+                    index.nearest(latitude, longitude, k, maxDistance, filter));
+        }
+    }
+
+    @Test
+    public void withinRadiusMatchesBruteForce() {
+        Random random = new Random(7);
+        for (int i = 0; i < QUERIES; i++) {
+            double latitude = randomLatitude(random);
+            double longitude = randomLongitude(random);
+            double radius = 100 + random.nextInt(2000);
+
+            List<Neighbor> expected = CatalogueStations.bruteForceNearest(stations, latitude, longitude,
+                    stations.size(), radius, StationGridIndex.Filter.ALL);
+            List<Neighbor> actual = index.withinRadius(latitude, longitude, radius, StationGridIndex.Filter.ALL);
+
+            assertEquals(getIds(expected), getIds(actual));
+            assertSameNeighbors(expected, actual);
+        }
+    }
+
+    @Test
+    public void nearestOfAStationIsItself() {
+        for (int i = 0; i < stations.size(); i++) {
+            Located station = stations.get(i);
+            List<Neighbor> nearest = index.nearest(station.getLatitude(), station.getLongitude(), 1,
+                    Double.MAX_VALUE, StationGridIndex.Filter.ALL);
+
+            assertEquals(1, nearest.size());
+            assertEquals(0, nearest.get(0).getDistanceInMeters(), DELTA_IN_METERS);
+        }
+    }
+
+    @Test
+    public void emptyQueries() {
+        Located station = stations.get(0);
+
+        assertTrue(index.nearest(station.getLatitude(), station.getLongitude(), 0,
+                Double.MAX_VALUE, StationGridIndex.Filter.ALL).isEmpty());
+        assertTrue(new StationGridIndex(new ArrayList<Located>()).nearest(station.getLatitude(),
+                station.getLongitude(), 5, Double.MAX_VALUE, StationGridIndex.Filter.ALL).isEmpty());
+    }
+
+    @Test
+    public void distances() {
+        Located station1 = stations.get(0);
+        Located station2 = stations.get(1);
+        double expected = GeoMath.haversine(station1.getLatitude(), station1.getLongitude(),
+                station2.getLatitude(), station2.getLongitude());
+
+        assertEquals(expected, index.distanceBetween(0, 1), DELTA_IN_METERS);
+        assertEquals(expected, index.distanceTo(0, station2.getLatitude(), station2.getLongitude()), DELTA_IN_METERS);
+    }
+
+    /**
+     * Compares the distances rank by rank, the ids being ambiguous between equidistant stations.
+     */
+    static void assertSameNeighbors(List<Neighbor> expected, List<Neighbor> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getDistanceInMeters(), actual.get(i).getDistanceInMeters(), DELTA_IN_METERS);
+        }
+    }
+
+    private static Set<Long> getIds(List<Neighbor> neighbors) {
+        Set<Long> ids = new HashSet<>();
+        for (Neighbor neighbor : neighbors) {
+            ids.add(neighbor.getId());
+        }
+
+        return ids;
+    }
+
+    private static double randomLatitude(Random random) {
+        return minLatitude - MARGIN_IN_DEGREES + random.nextDouble() * (maxLatitude - minLatitude + 2 * MARGIN_IN_DEGREES);
+    }
+
+    private static double randomLongitude(Random random) {
+        return minLongitude - MARGIN_IN_DEGREES + random.nextDouble() * (maxLongitude - minLongitude + 2 * MARGIN_IN_DEGREES);
+    }
+
+}
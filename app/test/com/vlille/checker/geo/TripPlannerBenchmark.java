@@ -0,0 +1,77 @@
+package com.vlille.checker.geo;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Times the trip planning over the full station set, with a random availability and trend.
+ *
+ * Not a test: run its main method from the IDE, from the app module directory.
+ */
+public final class TripPlannerBenchmark {
+
+    private static final int WARM_UP_TRIPS = 20000;
+    private static final int TRIPS = 100000;
+
+    private TripPlannerBenchmark() {}
+
+    public static void main(String[] args) {
+        List<CatalogueStations.TestStation> stations = CatalogueStations.load();
+
+        Random random = new Random(1);
+        final Map<Long, Integer> bikes = new HashMap<>();
+        final Map<Long, Float> trends = new HashMap<>();
+        for (Located station : stations) {
+            bikes.put(station.getId(), random.nextInt(20));
+            trends.put(station.getId(), random.nextFloat() - 0.5f);
+        }
+
+        TripPlanner planner = new TripPlanner(new StationGridIndex(stations),
+                new NearestStationsTracker.AvailabilitySource() {
+                    @Override
+                    public int getBikes(long id) {
+                        return bikes.get(id);
+                    }
+
+                    @Override
+                    public int getDocks(long id) {
+                        return 20 - bikes.get(id);
+                    }
+                },
+                new TripPlanner.TrendSource() {
+                    @Override
+                    public float getBikesPerMinute(long id) {
+                        return trends.get(id);
+                    }
+                });
+
+        double[] coordinates = new double[TRIPS * 4];
+        for (int i = 0; i < coordinates.length; i += 2) {
+            Located station = stations.get(random.nextInt(stations.size()));
+            coordinates[i] = station.getLatitude() + (random.nextDouble() - 0.5) / 100;
+            coordinates[i + 1] = station.getLongitude() + (random.nextDouble() - 0.5) / 100;
+        }
+
+        run(planner, coordinates, WARM_UP_TRIPS);
+
+        long start = System.nanoTime();
+        int found = run(planner, coordinates, TRIPS);
+        System.out.printf("%d trips over %d stations: %.2f us/trip, %d found%n",
+                TRIPS, stations.size(), (System.nanoTime() - start) / 1e3 / TRIPS, found);
+    }
+
+    private static int run(TripPlanner planner, double[] coordinates, int trips) {
+        int found = 0;
+        for (int i = 0; i < trips; i++) {
+            if (planner.plan(coordinates[4 * i], coordinates[4 * i + 1],
+                    coordinates[4 * i + 2], coordinates[4 * i + 3]).isFound()) {
+                found++;
+            }
+        }
+
+        return found;
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.vlille.checker.geo;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TripPlannerTest {
+
+    private static final double DELTA_IN_SECONDS = 1e-6;
+
+    private static final double ORIGIN_LATITUDE = 50.63;
+    private static final double ORIGIN_LONGITUDE = 3.06;
+
+    private static final double METERS_BY_LONGITUDE_DEGREE =
+            GeoMath.METERS_BY_DEGREE * Math.cos(Math.toRadians(ORIGIN_LATITUDE));
+
+    /**
+     * 3 km east of the origin.
+     */
+    private static final double DESTINATION_LATITUDE = ORIGIN_LATITUDE;
+    private static final double DESTINATION_LONGITUDE = ORIGIN_LONGITUDE + 3000 / METERS_BY_LONGITUDE_DEGREE;
+
+    private static final long EMPTY_NEAREST_PICKUP = 1;
+    private static final long EMPTYING_PICKUP = 2;
+    private static final long STABLE_PICKUP = 3;
+    private static final long FULL_NEAREST_DROP_OFF = 4;
+    private static final long SOUTH_DROP_OFF = 5;
+    private static final long NORTH_DROP_OFF = 6;
+    private static final long FAR_STATION = 7;
+
+    private final Map<Long, Integer> bikes = new HashMap<>();
+    private final Map<Long, Integer> docks = new HashMap<>();
+    private final Map<Long, Float> trends = new HashMap<>();
+
+    private final NearestStationsTracker.AvailabilitySource availabilitySource = new NearestStationsTracker.AvailabilitySource() {
+        @Override
+        public int getBikes(long id) {
+            Integer value = bikes.get(id);
+
+            return value == null ? UNKNOWN : value;
+        }
+
+        @Override
+        public int getDocks(long id) {
+            Integer value = docks.get(id);
+
+            return value == null ? UNKNOWN : value;
+        }
+    };
+
+    private final TripPlanner.TrendSource trendSource = new TripPlanner.TrendSource() {
+        @Override
+        public float getBikesPerMinute(long id) {
+            Float value = trends.get(id);
+
+            return value == null ? 0 : value;
+        }
+    };
+
+    private List<Located> stations;
+    private TripPlanner planner;
+
+    @Before
+    public void setUp() {
+        stations = new ArrayList<>();
+
+        // Near the origin: the nearest is empty, the next one has enough bikes but is losing them.
+        addStation(EMPTY_NEAREST_PICKUP, ORIGIN_LATITUDE, ORIGIN_LONGITUDE, 50, 0, 0, 20);
+        addStation(EMPTYING_PICKUP, ORIGIN_LATITUDE, ORIGIN_LONGITUDE, 150, 0, 3, 17);
+        addStation(STABLE_PICKUP, ORIGIN_LATITUDE, ORIGIN_LONGITUDE, 250, 0, 10, 10);
+
+        // Near the destination: the nearest is full.
+        addStation(FULL_NEAREST_DROP_OFF, DESTINATION_LATITUDE, DESTINATION_LONGITUDE, 0, 0, 20, 0);
+        addStation(SOUTH_DROP_OFF, DESTINATION_LATITUDE, DESTINATION_LONGITUDE, -300, 0, 12, 8);
+        addStation(NORTH_DROP_OFF, DESTINATION_LATITUDE, DESTINATION_LONGITUDE, 450, 0, 12, 8);
+
+        // Out of walking distance, with plenty of bikes and docks.
+        addStation(FAR_STATION, ORIGIN_LATITUDE, ORIGIN_LONGITUDE, 1500, 1500, 20, 20);
+
+        trends.put(EMPTYING_PICKUP, -1f);
+
+        planner = new TripPlanner(new StationGridIndex(stations), availabilitySource, trendSource);
+    }
+
+    @Test
+    public void skipsTheEmptyAndFullStations() {
+        TripPlanner.Trip trip = plan();
+
+        assertTrue(trip.isFound());
+        assertFalse(trip.getPickup().getId() == EMPTY_NEAREST_PICKUP);
+        assertEquals(SOUTH_DROP_OFF, trip.getDropOff().getId());
+    }
+
+    @Test
+    public void penalizesAStationLikelyEmptyWhenReached() {
+        // About 2 minutes of walk: 3 bikes losing one per minute leave about one.
+        assertEquals(STABLE_PICKUP, plan().getPickup().getId());
+    }
+
+    @Test
+    public void prefersTheNearestStationWithoutTrend() {
+        trends.clear();
+
+        assertEquals(EMPTYING_PICKUP, plan().getPickup().getId());
+    }
+
+    @Test
+    public void penalizesADropOffLikelyFullWhenReached() {
+        // The south station gets full during the ride, about 12 minutes.
+        trends.put(SOUTH_DROP_OFF, 1f);
+
+        assertEquals(NORTH_DROP_OFF, plan().getDropOff().getId());
+    }
+
+    @Test
+    public void ignoresTheUnknownAvailability() {
+        bikes.remove(EMPTYING_PICKUP);
+        bikes.remove(STABLE_PICKUP);
+
+        TripPlanner.Trip trip = plan();
+
+        assertFalse(trip.isFound());
+        assertNull(trip.getPickup());
+        assertEquals(SOUTH_DROP_OFF, trip.getDropOff().getId());
+        assertEquals(0, trip.getDurationInSeconds(), DELTA_IN_SECONDS);
+    }
+
+    @Test
+    public void nothingWithinWalkingDistance() {
+        TripPlanner.Trip trip = planner.plan(ORIGIN_LATITUDE + 0.1, ORIGIN_LONGITUDE,
+                DESTINATION_LATITUDE + 0.1, DESTINATION_LONGITUDE);
+
+        assertFalse(trip.isFound());
+        assertNull(trip.getPickup());
+        assertNull(trip.getDropOff());
+    }
+
+    @Test
+    public void durationOfTheWholeTrip() {
+        TripPlanner.Trip trip = plan();
+        Located pickup = stations.get(trip.getPickup().getIndex());
+        Located dropOff = stations.get(trip.getDropOff().getIndex());
+
+        double walk = GeoMath.haversine(ORIGIN_LATITUDE, ORIGIN_LONGITUDE, pickup.getLatitude(), pickup.getLongitude())
+                + GeoMath.haversine(DESTINATION_LATITUDE, DESTINATION_LONGITUDE, dropOff.getLatitude(), dropOff.getLongitude());
+        double ride = GeoMath.haversine(pickup.getLatitude(), pickup.getLongitude(),
+                dropOff.getLatitude(), dropOff.getLongitude());
+
+        assertEquals(walk / 1.3 + ride / 4.2, trip.getDurationInSeconds(), DELTA_IN_SECONDS);
+    }
+
+    private TripPlanner.Trip plan() {
+        return planner.plan(ORIGIN_LATITUDE, ORIGIN_LONGITUDE, DESTINATION_LATITUDE, DESTINATION_LONGITUDE);
+    }
+
+    /**
+     * Adds a station at an offset from a position.
+     */
+    private void addStation(long id, double latitude, double longitude,
+                            double northInMeters, double eastInMeters,
+                            int stationBikes, int stationDocks) {
+        stations.add(new CatalogueStations.TestStation(id,
+                latitude + northInMeters / GeoMath.METERS_BY_DEGREE,
+                longitude + eastInMeters / METERS_BY_LONGITUDE_DEGREE));
+        bikes.put(id, stationBikes);
+        docks.put(id, stationDocks);
+    }
+
+}